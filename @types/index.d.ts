@@ -67,6 +67,92 @@ declare module "opentok-react-native" {
     sessionId: string;
   }
 
+  interface ActiveSpeaker {
+    publisherId?: string;
+    streamId?: string;
+    audioLevel: number;
+  }
+
+  interface ActiveSpeakerChangedEvent {
+    sessionId: string;
+    activeSpeaker: ActiveSpeaker | null;
+    topSpeakers: ActiveSpeaker[];
+  }
+
+  interface AudioHistogram {
+    count: number;
+    min: number;
+    mean: number;
+    p50: number;
+    p95: number;
+    p99: number;
+    max: number;
+  }
+
+  interface AudioDelayMetrics {
+    delay: number;
+    deviation: number;
+    lastMeasurement: number;
+    source: 'timestamp' | 'buffer';
+    measurements: number;
+    outliers: number;
+  }
+
+  interface AudioDeviceErrorEvent {
+    sessionId: string;
+    direction: 'render' | 'capture';
+    status: 'retrying' | 'recovered' | 'failed';
+    attempt: number;
+    message: string;
+  }
+
+  interface AudioTelemetryEvent {
+    sessionId?: string;
+    render: {
+      frames: number;
+      writes: number;
+      shortWrites: number;
+      underruns: number;
+      deviceUnderruns: number;
+      writeSize: AudioHistogram;
+      loopTime: AudioHistogram;
+      waitTime: AudioHistogram;
+      tapTime: AudioHistogram;
+      tapOverBudget: number;
+      estimatedDelay: number;
+      delay: AudioDelayMetrics;
+    };
+    capture: {
+      frames: number;
+      reads: number;
+      shortReads: number;
+      overruns: number;
+      readSize: AudioHistogram;
+      loopTime: AudioHistogram;
+      waitTime: AudioHistogram;
+      tapTime: AudioHistogram;
+      tapOverBudget: number;
+      estimatedDelay: number;
+      delay: AudioDelayMetrics;
+    };
+  }
+
+  interface ScreenCaptureStatsEvent {
+    targetFrameRate: number;
+    captureFrameRate: number;
+    effectiveFrameRate: number;
+    framesCaptured: number;
+    framesSent: number;
+    framesUnchanged: number;
+    framesSkipped: number;
+    copyTime: AudioHistogram;
+    readbackTime: AudioHistogram;
+    compareTime: AudioHistogram;
+    convertTime: AudioHistogram;
+    deliverTime: AudioHistogram;
+    latency: AudioHistogram;
+  }
+
   interface ErrorEvent {
     code: string;
     message: string;
@@ -86,6 +172,35 @@ declare module "opentok-react-native" {
     timestamp: number,
   }
 
+  interface StatsWindowSummary {
+    bitrate: number,
+    packetLossPercent: number,
+    bitrateMin: number,
+    bitrateAvg: number,
+    bitrateMax: number,
+    bitrateP50: number,
+    bitrateP95: number,
+    samples: number,
+  }
+
+  interface StreamStatsSummary {
+    streamId: string,
+    audio: StatsWindowSummary | null,
+    video: StatsWindowSummary | null,
+  }
+
+  interface SessionQualitySnapshot {
+    sessionId: string,
+    timestamp: number,
+    ids: string[],
+    types: Array<"publisher" | "subscriber">,
+    audioBitrate: Array<number | null>,
+    videoBitrate: Array<number | null>,
+    audioPacketLossPercent: Array<number | null>,
+    videoPacketLossPercent: Array<number | null>,
+    mos: Array<number | null>,
+  }
+
   interface SignalEvent {
     sessionId: string;
     fromConnection: string;
@@ -172,6 +287,62 @@ declare module "opentok-react-native" {
      * Enable Stereo output
      */
     enableStereoOutput?: boolean;
+
+    /**
+     * Android only - renders audio with a low latency AudioTrack (Android 8.0+), in mono unless enableStereoOutput
+     * is also set. Default is false.
+     */
+    lowLatencyAudio?: boolean;
+
+    /**
+     * Android only - interval in milliseconds used to batch native events into a single bridge message.
+     * Default is 0 (batching disabled). Shared by all sessions; the most recently created session's value applies.
+     */
+    eventBatchInterval?: number;
+
+    /**
+     * Android only - rate in Hz at which publisher and subscriber audio levels are coalesced and sent.
+     * Default is 0 (one event per native audio level callback). Shared by all sessions; the most recently created
+     * session's value applies.
+     */
+    audioLevelRate?: number;
+
+    /**
+     * Android only - interval in milliseconds between subscriber statsSummary events. Default is 0 (disabled).
+     * Shared by all sessions; the most recently created session's value applies.
+     */
+    statsSummaryInterval?: number;
+
+    /**
+     * Android only - interval in milliseconds between audioTelemetry events. Default is 0 (disabled).
+     */
+    audioTelemetryInterval?: number;
+
+    /**
+     * Android only - replaces the microphone and speaker with WAV files, for headless tests. Default is {} (disabled).
+     */
+    fileAudioDevice?: {
+      /**
+       * 16-bit PCM WAV file captured in a loop. Silence is captured when omitted.
+       */
+      captureFile?: string;
+
+      /**
+       * WAV file the rendered audio is written to. Rendered audio is discarded when omitted.
+       */
+      renderFile?: string;
+    };
+
+    /**
+     * Android only - enables native active speaker detection, with the defaults when true. Default is disabled.
+     */
+    activeSpeakerDetection?: boolean | {
+      enabled?: boolean;
+      holdTime?: number;
+      smoothingWindow?: number;
+      threshold?: number;
+      topSpeakers?: number;
+    };
     /**
      * Ice Config. Please check https://tokbox.com/developer/guides/configurable-turn-servers/
      */
@@ -187,6 +358,23 @@ declare module "opentok-react-native" {
   }
 
   interface OTSessionEventHandlers {
+    /**
+     * Android only. Sent when the dominant speaker or the list of top speakers changes.
+     * Requires the activeSpeakerDetection session option.
+     */
+    activeSpeakerChanged?: CallbackWithParam<ActiveSpeakerChangedEvent, any>;
+
+    /**
+     * Android only. Sent at the audioTelemetryInterval session option with the custom audio driver counters.
+     */
+    audioTelemetry?: CallbackWithParam<AudioTelemetryEvent, any>;
+
+    /**
+     * Android only. Sent when the custom audio driver's audio track or audio record fails and is re-created, or when
+     * the fileAudioDevice capture file cannot be read.
+     */
+    audioDeviceError?: CallbackWithParam<AudioDeviceErrorEvent, any>;
+
     /**
      * Sent when an archive recording of a session starts. If you connect to a session in which recording is already in progress, this message is sent when you connect.
      */
@@ -292,6 +480,18 @@ declare module "opentok-react-native" {
      */
     audioFallbackEnabled?: boolean;
 
+    /**
+     * Android only. Processing applied to the captured audio by the custom audio driver (enableStereoOutput or lowLatencyAudio session option) or the file audio device (fileAudioDevice session option).
+     * Only one publisher at a time can enable stages; initPublisher fails otherwise, or without one of those devices.
+     */
+    audioProcessing?: {
+      highPassFilter?: boolean;
+      gain?: number;
+      autoGain?: boolean;
+      voiceActivityDetection?: boolean;
+      silenceGate?: boolean;
+    };
+
     /**
      * If this property is set to false, the audio subsystem will not be initialized for the publisher, and setting the publishAudio property will have no effect. If your application does not require the use of audio, it is recommended to set this property rather than use the publishAudio property, which only temporarily disables the audio track.
      */
@@ -332,6 +532,41 @@ declare module "opentok-react-native" {
      */
     resolution?: "1280x720" | "640x480" | "352x288";
 
+    /**
+     * Android only. Options for screen-sharing publishers (videoSource "screen").
+     */
+    screenCapture?: {
+      /**
+       * Largest width or height of the shared frames, in pixels, keeping the aspect ratio. 0 shares at the screen's resolution. Default is 1280.
+       */
+      maxDimension?: number;
+
+      /**
+       * Frame rate, up to 30, used while the screen changes. Default is 15.
+       */
+      maxFrameRate?: number;
+
+      /**
+       * Frame rate used while the screen is static; unchanged frames are only repeated at this rate. Default is 1.
+       */
+      minFrameRate?: number;
+
+      /**
+       * Native tag (findNodeHandle) of a React view to share instead of the whole window.
+       */
+      viewTag?: number;
+
+      /**
+       * Rectangle of the window to share, in dp. Ignored when viewTag is set.
+       */
+      region?: {
+        x: number;
+        y: number;
+        width: number;
+        height: number;
+      };
+    };
+
     /**
      * If this property is set to false, the video subsystem will not be initialized for the publisher, and setting the publishVideo property will have no effect. If your application does not require the use of video, it is recommended to set this property rather than use the publishVideo property, which only temporarily disables the video track.
      */
@@ -368,6 +603,16 @@ declare module "opentok-react-native" {
      * Sent when the publisher stops streaming.
      */
     streamDestroyed?: CallbackWithParam<StreamDestroyedEvent, any>;
+
+    /**
+     * Android only. Sent when the user starts or stops speaking. Requires audioProcessing.voiceActivityDetection.
+     */
+    voiceActivity?: CallbackWithParam<{ speaking: boolean; audioLevel: number }, any>;
+
+    /**
+     * Android only. Sent with each publisher video stats update while screen sharing, with capture stage timings and frame rates.
+     */
+    screenCaptureStats?: CallbackWithParam<ScreenCaptureStatsEvent, any>;
   }
 
   /**
@@ -479,6 +724,11 @@ declare module "opentok-react-native" {
      * Sent periodically to report video statistics for the subscriber.
      */
     videoNetworkStats?: CallbackWithParam<VideoNetworkStatsEvent, any>;
+
+    /**
+     * Android only. Sent at the statsSummaryInterval session option with windowed bitrate and packet loss.
+     */
+    statsSummary?: CallbackWithParam<{stream: Stream; stats: StreamStatsSummary}, any>;
   }
 
   interface OTSubscriberViewProps extends ViewProps {
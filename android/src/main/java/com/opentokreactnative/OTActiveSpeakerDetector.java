@@ -0,0 +1,215 @@
+package com.opentokreactnative;
+
+import android.os.SystemClock;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.HashMap;
+
+/**
+ * Works out the dominant speaker and the top speakers of a session from the
+ * publisher and subscriber audio level callbacks.
+ *
+ * Each stream keeps an exponentially smoothed energy (level squared) over a time
+ * window. Streams enter the speaker list above a threshold and leave it below half
+ * of it. The dominant speaker only changes once it has held the floor for the hold
+ * time and the candidate is louder by a fixed margin, which avoids flapping between
+ * two people talking over each other. When the dominant speaker goes quiet or
+ * leaves, the loudest remaining speaker takes over at once, or there is none.
+ */
+class OTActiveSpeakerDetector {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int DEFAULT_HOLD_TIME = 1000;
+    private static final int DEFAULT_SMOOTHING_WINDOW = 300;
+    private static final int DEFAULT_TOP_SPEAKERS = 3;
+    private static final double DEFAULT_THRESHOLD = 0.05;
+    // The candidate must have this much more energy than the current speaker (about 1.8 dB).
+    private static final float SWITCH_MARGIN = 1.5f;
+
+    private final String sessionId;
+    private final long holdTime;
+    private final long smoothingWindow;
+    private final int topSpeakers;
+    private final float enterEnergy;
+    private final float leaveEnergy;
+
+    private final HashMap<String, Integer> slots = new HashMap<>();
+    private String[] ids = new String[INITIAL_CAPACITY];
+    private boolean[] isPublisher = new boolean[INITIAL_CAPACITY];
+    private float[] energy = new float[INITIAL_CAPACITY];
+    private long[] lastUpdate = new long[INITIAL_CAPACITY];
+    private boolean[] speaking = new boolean[INITIAL_CAPACITY];
+    private int dominant = -1;
+    private long dominantSince = 0;
+
+    // Scratch buffer used to rank speakers without allocating.
+    private int[] ranking = new int[INITIAL_CAPACITY];
+
+    OTActiveSpeakerDetector(String sessionId, ReadableMap options) {
+
+        this.sessionId = sessionId;
+        this.holdTime = options.hasKey("holdTime") ? options.getInt("holdTime") : DEFAULT_HOLD_TIME;
+        this.smoothingWindow = options.hasKey("smoothingWindow") ? options.getInt("smoothingWindow") : DEFAULT_SMOOTHING_WINDOW;
+        this.topSpeakers = options.hasKey("topSpeakers") ? Math.max(options.getInt("topSpeakers"), 1) : DEFAULT_TOP_SPEAKERS;
+        double threshold = options.hasKey("threshold") ? options.getDouble("threshold") : DEFAULT_THRESHOLD;
+        this.enterEnergy = (float) (threshold * threshold);
+        this.leaveEnergy = this.enterEnergy / 2;
+    }
+
+    /**
+     * Feeds a new audio level for a publisher or a subscriber stream.
+     *
+     * @return true when the dominant speaker or the set of top speakers changed.
+     */
+    synchronized boolean update(String id, boolean publisher, float audioLevel) {
+
+        long now = SystemClock.elapsedRealtime();
+        Integer slot = slots.get(id);
+        if (slot == null) {
+            slot = allocateSlot(id, publisher, now);
+        }
+
+        long elapsed = Math.max(now - lastUpdate[slot], 1);
+        float alpha = (float) elapsed / (smoothingWindow + elapsed);
+        energy[slot] += alpha * (audioLevel * audioLevel - energy[slot]);
+        lastUpdate[slot] = now;
+
+        boolean changed = false;
+        if (!speaking[slot] && energy[slot] >= enterEnergy) {
+            speaking[slot] = true;
+            changed = true;
+        } else if (speaking[slot] && energy[slot] < leaveEnergy) {
+            speaking[slot] = false;
+            changed = true;
+        }
+
+        if (slot == dominant && !speaking[slot]) {
+            // The dominant speaker went quiet: hand the floor to whoever is loudest, if anyone.
+            setDominant(rankSpeakers() > 0 ? ranking[0] : -1, now);
+        } else if (speaking[slot] && slot != dominant) {
+            if (dominant < 0) {
+                setDominant(slot, now);
+                changed = true;
+            } else if (now - dominantSince >= holdTime
+                    && energy[slot] > energy[dominant] * SWITCH_MARGIN) {
+                setDominant(slot, now);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Forgets a stream that was destroyed or a publisher that was unpublished.
+     *
+     * @return true when the dominant speaker or the set of top speakers changed.
+     */
+    synchronized boolean remove(String id) {
+
+        Integer slot = slots.remove(id);
+        if (slot == null) {
+            return false;
+        }
+        boolean wasSpeaking = speaking[slot];
+        ids[slot] = null;
+        speaking[slot] = false;
+        energy[slot] = 0;
+        if (dominant == slot) {
+            setDominant(rankSpeakers() > 0 ? ranking[0] : -1, SystemClock.elapsedRealtime());
+            return true;
+        }
+        return wasSpeaking;
+    }
+
+    synchronized WritableMap snapshot() {
+
+        WritableMap eventData = Arguments.createMap();
+        eventData.putString("sessionId", sessionId);
+        if (dominant >= 0) {
+            eventData.putMap("activeSpeaker", prepareSpeakerMap(dominant));
+        } else {
+            eventData.putNull("activeSpeaker");
+        }
+        int count = rankSpeakers();
+        WritableArray speakers = Arguments.createArray();
+        for (int i = 0; i < count && i < topSpeakers; i++) {
+            speakers.pushMap(prepareSpeakerMap(ranking[i]));
+        }
+        eventData.putArray("topSpeakers", speakers);
+        return eventData;
+    }
+
+    private void setDominant(int slot, long now) {
+
+        dominant = slot;
+        dominantSince = now;
+    }
+
+    private int rankSpeakers() {
+
+        // Insertion sort by energy: the speaker list is small.
+        int count = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == null || !speaking[i]) {
+                continue;
+            }
+            int j = count++;
+            while (j > 0 && energy[ranking[j - 1]] < energy[i]) {
+                ranking[j] = ranking[j - 1];
+                j--;
+            }
+            ranking[j] = i;
+        }
+        return count;
+    }
+
+    private WritableMap prepareSpeakerMap(int slot) {
+
+        WritableMap speaker = Arguments.createMap();
+        if (isPublisher[slot]) {
+            speaker.putString("publisherId", ids[slot]);
+        } else {
+            speaker.putString("streamId", ids[slot]);
+        }
+        speaker.putDouble("audioLevel", Math.sqrt(energy[slot]));
+        return speaker;
+    }
+
+    private int allocateSlot(String id, boolean publisher, long now) {
+
+        int slot = 0;
+        while (slot < ids.length && ids[slot] != null) {
+            slot++;
+        }
+        if (slot == ids.length) {
+            int capacity = ids.length * 2;
+            String[] newIds = new String[capacity];
+            boolean[] newIsPublisher = new boolean[capacity];
+            float[] newEnergy = new float[capacity];
+            long[] newLastUpdate = new long[capacity];
+            boolean[] newSpeaking = new boolean[capacity];
+            System.arraycopy(ids, 0, newIds, 0, ids.length);
+            System.arraycopy(isPublisher, 0, newIsPublisher, 0, ids.length);
+            System.arraycopy(energy, 0, newEnergy, 0, ids.length);
+            System.arraycopy(lastUpdate, 0, newLastUpdate, 0, ids.length);
+            System.arraycopy(speaking, 0, newSpeaking, 0, ids.length);
+            ids = newIds;
+            isPublisher = newIsPublisher;
+            energy = newEnergy;
+            lastUpdate = newLastUpdate;
+            speaking = newSpeaking;
+            ranking = new int[capacity];
+        }
+        ids[slot] = id;
+        isPublisher[slot] = publisher;
+        energy[slot] = 0;
+        lastUpdate[slot] = now;
+        speaking[slot] = false;
+        slots.put(id, slot);
+        return slot;
+    }
+}
@@ -0,0 +1,160 @@
+package com.opentokreactnative;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReactContext;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import java.util.HashMap;
+
+/**
+ * Keeps the latest audio level of each publisher and subscriber and sends all the
+ * levels that changed since the last tick to JS as one event.
+ *
+ * Levels are stored in a primitive array indexed by a slot assigned per id, so
+ * updates from the SDK callbacks do not allocate.
+ */
+class OTAudioLevelCoalescer {
+
+    static final String AUDIO_LEVELS_EVENT = "otrn:onAudioLevels";
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final ReactContext reactContext;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Object lock = new Object();
+    private final HashMap<String, Integer> slots = new HashMap<>();
+    private String[] ids = new String[INITIAL_CAPACITY];
+    private boolean[] isPublisher = new boolean[INITIAL_CAPACITY];
+    private boolean[] dirty = new boolean[INITIAL_CAPACITY];
+    private float[] levels = new float[INITIAL_CAPACITY];
+    private volatile int interval = 0;
+    private boolean flushScheduled = false;
+
+    private final Runnable flushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    OTAudioLevelCoalescer(ReactContext reactContext) {
+
+        this.reactContext = reactContext;
+    }
+
+    void setRate(int rate) {
+
+        synchronized (lock) {
+            interval = rate > 0 ? Math.max(1000 / rate, 1) : 0;
+            if (interval == 0) {
+                handler.removeCallbacks(flushRunnable);
+                flushScheduled = false;
+            }
+        }
+    }
+
+    boolean isEnabled() {
+
+        return interval > 0;
+    }
+
+    void updatePublisherLevel(String publisherId, float audioLevel) {
+
+        update(publisherId, true, audioLevel);
+    }
+
+    void updateSubscriberLevel(String streamId, float audioLevel) {
+
+        update(streamId, false, audioLevel);
+    }
+
+    void remove(String id) {
+
+        synchronized (lock) {
+            Integer slot = slots.remove(id);
+            if (slot != null) {
+                ids[slot] = null;
+                dirty[slot] = false;
+            }
+        }
+    }
+
+    private void update(String id, boolean publisher, float audioLevel) {
+
+        synchronized (lock) {
+            if (interval == 0) {
+                return;
+            }
+            Integer slot = slots.get(id);
+            if (slot == null) {
+                slot = allocateSlot(id, publisher);
+            }
+            levels[slot] = audioLevel;
+            dirty[slot] = true;
+            if (!flushScheduled) {
+                flushScheduled = true;
+                handler.postDelayed(flushRunnable, interval);
+            }
+        }
+    }
+
+    private int allocateSlot(String id, boolean publisher) {
+
+        int slot = 0;
+        while (slot < ids.length && ids[slot] != null) {
+            slot++;
+        }
+        if (slot == ids.length) {
+            int capacity = ids.length * 2;
+            String[] newIds = new String[capacity];
+            boolean[] newIsPublisher = new boolean[capacity];
+            boolean[] newDirty = new boolean[capacity];
+            float[] newLevels = new float[capacity];
+            System.arraycopy(ids, 0, newIds, 0, ids.length);
+            System.arraycopy(isPublisher, 0, newIsPublisher, 0, ids.length);
+            System.arraycopy(dirty, 0, newDirty, 0, ids.length);
+            System.arraycopy(levels, 0, newLevels, 0, ids.length);
+            ids = newIds;
+            isPublisher = newIsPublisher;
+            dirty = newDirty;
+            levels = newLevels;
+        }
+        ids[slot] = id;
+        isPublisher[slot] = publisher;
+        slots.put(id, slot);
+        return slot;
+    }
+
+    private void flush() {
+
+        WritableMap publishers = Arguments.createMap();
+        WritableMap subscribers = Arguments.createMap();
+        boolean hasLevels = false;
+        synchronized (lock) {
+            flushScheduled = false;
+            for (int i = 0; i < ids.length; i++) {
+                if (dirty[i] && ids[i] != null) {
+                    if (isPublisher[i]) {
+                        publishers.putDouble(ids[i], levels[i]);
+                    } else {
+                        subscribers.putDouble(ids[i], levels[i]);
+                    }
+                    dirty[i] = false;
+                    hasLevels = true;
+                }
+            }
+        }
+        if (hasLevels) {
+            WritableMap audioLevels = Arguments.createMap();
+            audioLevels.putMap("publishers", publishers);
+            audioLevels.putMap("subscribers", subscribers);
+            reactContext
+                    .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                    .emit(AUDIO_LEVELS_EVENT, audioLevels);
+        }
+    }
+}
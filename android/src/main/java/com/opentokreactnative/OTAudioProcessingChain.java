@@ -0,0 +1,283 @@
+package com.opentokreactnative;
+
+import com.facebook.react.bridge.ReadableMap;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ordered stages applied in place to captured audio before it reaches the audio bus:
+ * high-pass filter, gain (fixed and/or automatic), level metering and voice activity
+ * detection, which can also gate the audio to silence while nobody is speaking.
+ *
+ * The chain is built from the publisher's audioProcessing properties and run by the custom
+ * audio driver on its capture bus thread. Stage state is only touched by that thread.
+ */
+final class OTAudioProcessingChain {
+
+    // Called on the capture bus thread, so it must not allocate or block either.
+    interface VoiceActivityListener {
+        void onVoiceActivity(boolean speaking, double audioLevel);
+    }
+
+    private final OTAudioProcessor[] processors;
+
+    OTAudioProcessingChain(List<OTAudioProcessor> processors) {
+
+        this.processors = processors.toArray(new OTAudioProcessor[0]);
+    }
+
+    static OTAudioProcessingChain fromOptions(ReadableMap options, int sampleRate, VoiceActivityListener listener) {
+
+        List<OTAudioProcessor> processors = new ArrayList<>();
+        if (options.hasKey("highPassFilter") && options.getBoolean("highPassFilter")) {
+            processors.add(new HighPassFilter(sampleRate, HighPassFilter.DEFAULT_CUTOFF));
+        }
+        double gain = options.hasKey("gain") ? options.getDouble("gain") : 0;
+        boolean autoGain = options.hasKey("autoGain") && options.getBoolean("autoGain");
+        if (gain != 0 || autoGain) {
+            processors.add(new Gain(gain, autoGain));
+        }
+        if (options.hasKey("voiceActivityDetection") && options.getBoolean("voiceActivityDetection")) {
+            LevelMeter meter = new LevelMeter();
+            boolean silenceGate = options.hasKey("silenceGate") && options.getBoolean("silenceGate");
+            processors.add(meter);
+            processors.add(new VoiceActivityDetector(meter, silenceGate, listener));
+        }
+        return new OTAudioProcessingChain(processors);
+    }
+
+    /**
+     * @return whether the options enable at least one stage.
+     */
+    static boolean hasStages(ReadableMap options) {
+
+        return (options.hasKey("highPassFilter") && options.getBoolean("highPassFilter"))
+                || (options.hasKey("gain") && options.getDouble("gain") != 0)
+                || (options.hasKey("autoGain") && options.getBoolean("autoGain"))
+                || (options.hasKey("voiceActivityDetection") && options.getBoolean("voiceActivityDetection"));
+    }
+
+    boolean isEmpty() {
+        return processors.length == 0;
+    }
+
+    void process(ByteBuffer pcm, int frames) {
+
+        for (OTAudioProcessor processor : processors) {
+            processor.process(pcm, frames);
+        }
+    }
+
+    private static short clip(double sample) {
+
+        long value = Math.round(sample);
+        if (value > Short.MAX_VALUE) {
+            return Short.MAX_VALUE;
+        }
+        if (value < Short.MIN_VALUE) {
+            return Short.MIN_VALUE;
+        }
+        return (short) value;
+    }
+
+    private static double toDb(double amplitude) {
+        return amplitude > 0 ? 20 * Math.log10(amplitude) : -120;
+    }
+
+    private static double fromDb(double db) {
+        return Math.pow(10, db / 20);
+    }
+
+    /**
+     * Second order Butterworth high-pass filter, which removes rumble and DC offset.
+     */
+    static final class HighPassFilter implements OTAudioProcessor {
+
+        static final double DEFAULT_CUTOFF = 100;
+
+        private final double b0;
+        private final double b1;
+        private final double b2;
+        private final double a1;
+        private final double a2;
+        private double x1 = 0;
+        private double x2 = 0;
+        private double y1 = 0;
+        private double y2 = 0;
+
+        HighPassFilter(int sampleRate, double cutoff) {
+
+            double w0 = 2 * Math.PI * cutoff / sampleRate;
+            double alpha = Math.sin(w0) / (2 * Math.sqrt(0.5));
+            double cos = Math.cos(w0);
+            double a0 = 1 + alpha;
+            this.b0 = (1 + cos) / 2 / a0;
+            this.b1 = -(1 + cos) / a0;
+            this.b2 = (1 + cos) / 2 / a0;
+            this.a1 = -2 * cos / a0;
+            this.a2 = (1 - alpha) / a0;
+        }
+
+        @Override
+        public void process(ByteBuffer pcm, int frames) {
+
+            for (int i = 0; i < frames; i++) {
+                double x = pcm.getShort(i * 2);
+                double y = b0 * x + b1 * x1 + b2 * x2 - a1 * y1 - a2 * y2;
+                x2 = x1;
+                x1 = x;
+                y2 = y1;
+                y1 = y;
+                pcm.putShort(i * 2, clip(y));
+            }
+        }
+    }
+
+    /**
+     * Fixed gain, in dB, optionally combined with an automatic gain that moves the speech level
+     * towards TARGET_LEVEL. The automatic gain drops quickly on loud input and rises slowly,
+     * and holds while the input is below SPEECH_FLOOR so background noise is not amplified.
+     * Gain changes are ramped over each block.
+     */
+    static final class Gain implements OTAudioProcessor {
+
+        private static final double TARGET_LEVEL = fromDb(-18) * 32768;
+        private static final double SPEECH_FLOOR = fromDb(-50) * 32768;
+        private static final double MIN_AUTO_GAIN = fromDb(-12);
+        private static final double MAX_AUTO_GAIN = fromDb(20);
+        private static final double ATTACK = 0.3;
+        private static final double RELEASE = 0.02;
+
+        private final double fixedGain;
+        private final boolean auto;
+        private double autoGain = 1;
+        private double appliedGain;
+
+        Gain(double gainDb, boolean auto) {
+
+            this.fixedGain = fromDb(gainDb);
+            this.auto = auto;
+            this.appliedGain = fixedGain;
+        }
+
+        @Override
+        public void process(ByteBuffer pcm, int frames) {
+
+            if (auto && frames > 0) {
+                double sum = 0;
+                for (int i = 0; i < frames; i++) {
+                    double sample = pcm.getShort(i * 2);
+                    sum += sample * sample;
+                }
+                double rms = Math.sqrt(sum / frames);
+                if (rms > SPEECH_FLOOR) {
+                    double target = Math.max(MIN_AUTO_GAIN, Math.min(MAX_AUTO_GAIN, TARGET_LEVEL / rms));
+                    autoGain += (target - autoGain) * (target < autoGain ? ATTACK : RELEASE);
+                }
+            }
+            double gain = fixedGain * autoGain;
+            double step = frames > 0 ? (gain - appliedGain) / frames : 0;
+            for (int i = 0; i < frames; i++) {
+                appliedGain += step;
+                pcm.putShort(i * 2, clip(pcm.getShort(i * 2) * appliedGain));
+            }
+            appliedGain = gain;
+        }
+    }
+
+    /**
+     * Measures the RMS level of each block, from 0 to 1.
+     */
+    static final class LevelMeter implements OTAudioProcessor {
+
+        private volatile double level = 0;
+
+        @Override
+        public void process(ByteBuffer pcm, int frames) {
+
+            double sum = 0;
+            for (int i = 0; i < frames; i++) {
+                double sample = pcm.getShort(i * 2);
+                sum += sample * sample;
+            }
+            level = frames > 0 ? Math.sqrt(sum / frames) / 32768 : 0;
+        }
+
+        double getLevel() {
+            return level;
+        }
+    }
+
+    /**
+     * Energy-based voice activity detection against an adaptive noise floor. The floor follows
+     * quieter blocks immediately and louder ones slowly; a block is voice when it is well above
+     * the floor. Speech starts after ONSET_BLOCKS voice blocks and ends HANGOVER_BLOCKS after
+     * the last one, so short pauses between words do not toggle it.
+     */
+    static final class VoiceActivityDetector implements OTAudioProcessor {
+
+        private static final double SPEECH_MARGIN_DB = 9;
+        private static final double MIN_SPEECH_DB = -55;
+        // Noise floor rise per 10 ms block: 5 dB/s while silent, 1 dB/s while speaking.
+        private static final double NOISE_RISE_DB = 0.05;
+        private static final double NOISE_RISE_SPEAKING_DB = 0.01;
+        private static final int ONSET_BLOCKS = 2;
+        private static final int HANGOVER_BLOCKS = 30;
+
+        private final LevelMeter meter;
+        private final boolean gate;
+        private final VoiceActivityListener listener;
+        private double noiseFloorDb = Double.NaN;
+        private int voiceBlocks = 0;
+        private int hangover = 0;
+        private boolean speaking = false;
+
+        VoiceActivityDetector(LevelMeter meter, boolean gate, VoiceActivityListener listener) {
+
+            this.meter = meter;
+            this.gate = gate;
+            this.listener = listener;
+        }
+
+        @Override
+        public void process(ByteBuffer pcm, int frames) {
+
+            double levelDb = toDb(meter.getLevel());
+            if (Double.isNaN(noiseFloorDb) || levelDb < noiseFloorDb) {
+                noiseFloorDb = levelDb;
+            } else {
+                noiseFloorDb = Math.min(levelDb, noiseFloorDb + (speaking ? NOISE_RISE_SPEAKING_DB : NOISE_RISE_DB));
+            }
+
+            boolean voice = levelDb > MIN_SPEECH_DB && levelDb > noiseFloorDb + SPEECH_MARGIN_DB;
+            if (voice) {
+                voiceBlocks++;
+                hangover = HANGOVER_BLOCKS;
+                if (!speaking && voiceBlocks >= ONSET_BLOCKS) {
+                    setSpeaking(true);
+                }
+            } else {
+                voiceBlocks = 0;
+                if (speaking && --hangover <= 0) {
+                    setSpeaking(false);
+                }
+            }
+
+            if (gate && !speaking) {
+                for (int i = 0; i < frames; i++) {
+                    pcm.putShort(i * 2, (short) 0);
+                }
+            }
+        }
+
+        private void setSpeaking(boolean speaking) {
+
+            this.speaking = speaking;
+            if (listener != null) {
+                listener.onVoiceActivity(speaking, meter.getLevel());
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.opentokreactnative;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A stage of the capture processing chain.
+ *
+ * Stages run on the capture bus thread, between the capture ring buffer and the audio bus, and
+ * process 10 ms of 16-bit mono PCM in place. They must not allocate or block.
+ */
+interface OTAudioProcessor {
+
+    void process(ByteBuffer pcm, int frames);
+}
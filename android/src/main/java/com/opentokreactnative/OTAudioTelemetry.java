@@ -0,0 +1,84 @@
+package com.opentokreactnative;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+import com.opentokreactnative.utils.AudioDelayEstimator;
+import com.opentokreactnative.utils.EventUtils;
+import com.opentokreactnative.utils.Log2Histogram;
+
+/**
+ * Counters and histograms kept by the custom and file audio devices for rendering and capturing.
+ *
+ * The audio threads only increment counters and record histogram values, which does
+ * not allocate. Maps for JS are built on demand from another thread.
+ */
+class OTAudioTelemetry {
+
+    static final class Direction {
+
+        final AudioDelayEstimator delayEstimator;
+        // Frames written to the AudioTrack or read from the AudioRecord.
+        volatile long frames = 0;
+        // AudioTrack.write or AudioRecord.read calls, and how many moved fewer bytes than asked.
+        volatile long calls = 0;
+        volatile long shortCalls = 0;
+        // Render: ring buffer empty when the device wanted data. Capture: ring buffer full.
+        volatile long glitches = 0;
+        // Render only: underruns reported by the AudioTrack (Android 7.0+).
+        volatile long deviceGlitches = 0;
+        volatile int estimatedDelay = 0;
+        // Frames per write or read call.
+        final Log2Histogram callSize = new Log2Histogram();
+        // Microseconds per loop iteration, including the blocking write or read.
+        final Log2Histogram loopTime = new Log2Histogram();
+        // Microseconds spent parked waiting for the other side of the ring buffer.
+        final Log2Histogram waitTime = new Log2Histogram();
+        // Nanoseconds spent queuing audio for a local recording, and blocks over the budget.
+        final Log2Histogram tapTime = new Log2Histogram();
+        volatile long tapOverBudget = 0;
+
+        Direction(AudioDelayEstimator delayEstimator) {
+
+            this.delayEstimator = delayEstimator;
+        }
+    }
+
+    final Direction render;
+    final Direction capture;
+
+    OTAudioTelemetry(AudioDelayEstimator renderDelayEstimator, AudioDelayEstimator captureDelayEstimator) {
+
+        this.render = new Direction(renderDelayEstimator);
+        this.capture = new Direction(captureDelayEstimator);
+    }
+
+    WritableMap prepareMap() {
+
+        WritableMap renderInfo = prepareDirectionMap(render, "writes", "shortWrites", "writeSize");
+        renderInfo.putDouble("underruns", render.glitches);
+        renderInfo.putDouble("deviceUnderruns", render.deviceGlitches);
+        WritableMap captureInfo = prepareDirectionMap(capture, "reads", "shortReads", "readSize");
+        captureInfo.putDouble("overruns", capture.glitches);
+
+        WritableMap telemetry = Arguments.createMap();
+        telemetry.putMap("render", renderInfo);
+        telemetry.putMap("capture", captureInfo);
+        return telemetry;
+    }
+
+    private static WritableMap prepareDirectionMap(Direction direction, String callsKey, String shortCallsKey, String sizeKey) {
+
+        WritableMap directionInfo = Arguments.createMap();
+        directionInfo.putDouble("frames", direction.frames);
+        directionInfo.putDouble(callsKey, direction.calls);
+        directionInfo.putDouble(shortCallsKey, direction.shortCalls);
+        directionInfo.putMap(sizeKey, EventUtils.prepareHistogramMap(direction.callSize));
+        directionInfo.putMap("loopTime", EventUtils.prepareHistogramMap(direction.loopTime));
+        directionInfo.putMap("waitTime", EventUtils.prepareHistogramMap(direction.waitTime));
+        directionInfo.putMap("tapTime", EventUtils.prepareHistogramMap(direction.tapTime));
+        directionInfo.putDouble("tapOverBudget", direction.tapOverBudget);
+        directionInfo.putInt("estimatedDelay", direction.estimatedDelay);
+        directionInfo.putMap("delay", EventUtils.prepareAudioDelayMap(direction.delayEstimator));
+        return directionInfo;
+    }
+}
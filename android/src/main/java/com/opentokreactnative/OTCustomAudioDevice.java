@@ -8,9 +8,11 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.media.AudioAttributes;
 import android.media.AudioFormat;
 import android.media.AudioManager;
 import android.media.AudioRecord;
+import android.media.AudioTimestamp;
 import android.media.AudioTrack;
 import android.media.MediaRecorder.AudioSource;
 import android.media.audiofx.AcousticEchoCanceler;
@@ -22,18 +24,24 @@ import android.telephony.TelephonyManager;
 import android.util.Log;
 
 import com.opentok.android.BaseAudioDevice;
+import com.opentokreactnative.utils.AudioDelayEstimator;
+import com.opentokreactnative.utils.PcmConverter;
+import com.opentokreactnative.utils.PcmRingBuffer;
+import com.opentokreactnative.utils.WavFileWriter;
 
+import java.io.File;
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.List;
 import java.util.Locale;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 class OTCustomAudioDriver extends BaseAudioDevice {
     private final static String TAG =  OTCustomAudioDriver.class.getSimpleName();
 
     private static final int NUM_CHANNELS_CAPTURING = 1;
-    private static final int NUM_CHANNELS_RENDERING = 2;
     private static final int STEREO_CHANNELS = 2;
     private static final int DEFAULT_SAMPLE_RATE = 44100;
     private static final int SAMPLE_SIZE_IN_BYTES = 2;
@@ -43,27 +51,92 @@ class OTCustomAudioDriver extends BaseAudioDevice {
     // Max 10 ms @ 48 kHz - Stereo
     private static final int DEFAULT_START_RENDERER_AND_CAPTURER_DELAY = 5 * 1000;
     private static final int DEFAULT_BLUETOOTH_SCO_START_DELAY = 2000;
+    private static final boolean USE_DIRECT_BUFFERS = Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP;
+    private static final int THREAD_JOIN_TIMEOUT_MS = 1000;
+    // Device re-creation after read/write errors: attempts in a row, and the first backoff,
+    // doubled after each failed attempt.
+    private static final int MAX_RESTART_ATTEMPTS = 5;
+    private static final long RESTART_BACKOFF_NS = 100 * 1000000L;
+    // Low latency mode: initial and maximum AudioTrack buffer sizes, in device bursts.
+    private static final int LOW_LATENCY_INITIAL_BURSTS = 2;
+    private static final int LOW_LATENCY_MAX_BURSTS = 8;
+    // How often AudioTrack/AudioRecord timestamps are polled; the delay is extrapolated in between.
+    private static final long TIMESTAMP_POLL_INTERVAL_NS = 500 * 1000000L;
+    private static final double MAX_TIMESTAMP_DELAY = 1000;
+
+    // Renderer and capturer states
+    private static final int STATE_STOPPED = 0;
+    private static final int STATE_STARTED = 1;
+    private static final int STATE_DESTROYED = 2;
 
     private Context context;
 
-    private AudioTrack audioTrack;
-    private AudioRecord audioRecord;
+    // Only replaced under the control locks, but read without locking by the audio threads.
+    private volatile AudioTrack audioTrack;
+    private volatile AudioRecord audioRecord;
+    private final Object renderControlLock = new Object();
+    private final Object captureControlLock = new Object();
 
-    // Capture & render buffers
+    // Capture & render buffers. playBuffer and recBuffer are exchanged with the audio bus,
+    // trackBuffer and recordBuffer with the AudioTrack and AudioRecord. The heap arrays are
+    // only used before Lollipop, where AudioRecord and AudioTrack cannot use direct buffers.
     private ByteBuffer playBuffer;
     private ByteBuffer recBuffer;
+    private ByteBuffer trackBuffer;
+    private ByteBuffer recordBuffer;
     private byte[] tempBufPlay;
     private byte[] tempBufRec;
 
-    private final ReentrantLock rendererLock = new ReentrantLock(true);
-    private final Condition renderEvent = rendererLock.newCondition();
-    private volatile boolean isRendering = false;
-    private volatile boolean shutdownRenderThread = false;
+    // The AudioRecord is opened at the device's native rate when possible, and captured audio
+    // is converted to the rate in captureSettings before it reaches the ring buffer, instead of
+    // letting AudioFlinger resample it. null when both rates are the same.
+    // Rendering needs no converter: rendererSettings already use the native output rate and the
+    // track's channel count, so the SDK mixes the audio bus at the rate the AudioTrack plays.
+    private PcmConverter captureConverter;
+    private ByteBuffer convertBuffer;
+
+    // Applied in place to recBuffer before each write to the audio bus.
+    private volatile OTAudioProcessingChain captureProcessing;
+
+    // Local recording: audio sent to and received from the audio bus is also queued to WAV
+    // files, within TAP_BUDGET_NS per 10 ms block.
+    private static final long TAP_BUDGET_NS = 200 * 1000L;
+    private static final int TAP_BUFFER_SECONDS = 2;
+    private volatile WavFileWriter captureTap;
+    private volatile WavFileWriter renderTap;
+
+    // Each direction runs a device thread (AudioTrack/AudioRecord) and a bus thread (audio bus),
+    // connected by a lock-free ring buffer, so a blocking device call never delays the SDK and the
+    // other way around. The threads are started by init, park while stopped, and return once the
+    // state is STATE_DESTROYED. Destroy wakes them up and joins them before releasing the device.
+    private final AtomicInteger renderState = new AtomicInteger(STATE_STOPPED);
+    private PcmRingBuffer renderRing;
+    private volatile Thread renderDeviceThread;
+    private volatile Thread renderBusThread;
+    private volatile boolean renderRestartRequested = false;
+    private int renderFailures = 0;
+
+    private final AtomicInteger captureState = new AtomicInteger(STATE_STOPPED);
+    private PcmRingBuffer captureRing;
+    private volatile Thread captureDeviceThread;
+    private volatile Thread captureBusThread;
+    private volatile boolean captureRestartRequested = false;
+    private int captureFailures = 0;
+
+    static final String DIRECTION_RENDER = "render";
+    static final String DIRECTION_CAPTURE = "capture";
+    static final String STATUS_RETRYING = "retrying";
+    static final String STATUS_RECOVERED = "recovered";
+    static final String STATUS_FAILED = "failed";
+
+    /**
+     * Notified from the audio threads when the AudioTrack or AudioRecord fails and is re-created.
+     */
+    interface AudioErrorListener {
+        void onAudioError(String direction, String status, String message, int attempt);
+    }
 
-    private final ReentrantLock captureLock = new ReentrantLock(true);
-    private final Condition captureEvent = captureLock.newCondition();
-    private volatile boolean isCapturing = false;
-    private volatile boolean shutdownCaptureThread = false;
+    private volatile AudioErrorListener audioErrorListener;
 
     private AudioSettings captureSettings;
     private AudioSettings rendererSettings;
@@ -72,17 +145,38 @@ class OTCustomAudioDriver extends BaseAudioDevice {
 
     // Capturing delay estimation
     private int estimatedCaptureDelay = 0;
+    private final AudioDelayEstimator captureDelayEstimator = new AudioDelayEstimator();
+    // AudioTimestamp needs Android 4.4, so it is allocated on first use.
+    private AudioTimestamp captureTimestamp;
+    private boolean hasCaptureTimestamp = false;
+    private long lastCaptureTimestampPoll = 0;
+    private long framesRead = 0;
 
     // Rendering delay estimation
     private int bufferedPlaySamples = 0;
     private int playPosition = 0;
     private int estimatedRenderDelay = 0;
+    private final AudioDelayEstimator renderDelayEstimator = new AudioDelayEstimator();
+    private AudioTimestamp renderTimestamp;
+    private boolean hasRenderTimestamp = false;
+    private long lastRenderTimestampPoll = 0;
+    private long framesWritten = 0;
+
+    private final OTAudioTelemetry telemetry = new OTAudioTelemetry(renderDelayEstimator, captureDelayEstimator);
+
+    // Low latency mode
+    private final boolean lowLatency;
+    // Not final: the render thread lambdas below are field initializers and read it.
+    private int renderChannels;
+    private boolean tuneBufferSize = false;
+    private int lastUnderrunCount = 0;
 
     private AudioManager audioManager;
     private AudioManagerMode audioManagerMode = new AudioManagerMode();
 
     private int outputSamplingRate = DEFAULT_SAMPLE_RATE;
     private int captureSamplingRate = DEFAULT_SAMPLE_RATE;
+    private int recordSamplingRate = DEFAULT_SAMPLE_RATE;
     private int samplesPerBuffer = DEFAULT_SAMPLES_PER_BUFFER;
 
     // For headset receiver.
@@ -279,6 +373,7 @@ class OTCustomAudioDriver extends BaseAudioDevice {
                         bluetoothState = BluetoothState.Connected;
                         setOutputType(OutputType.BLUETOOTH);
                         OTCustomAudioDriver.super.setOutputMode(OutputMode.Handset); // When BT is connected it replaces the handset
+                        requestDeviceRestart();
                         break;
                     case AudioManager.SCO_AUDIO_STATE_ERROR:
                         Log.d(TAG, "bluetoothBroadcastReceiver.onReceive(): AudioManager.SCO_AUDIO_STATE_ERROR");
@@ -287,6 +382,7 @@ class OTCustomAudioDriver extends BaseAudioDevice {
                         Log.d(TAG, "bluetoothBroadcastReceiver.onReceive(): AudioManager.SCO_AUDIO_STATE_DISCONNECTED");
                         restoreAudioAfterBluetoothDisconnect();
                         bluetoothState = BluetoothState.Disconnected;
+                        requestDeviceRestart();
                         break;
                     case AudioManager.SCO_AUDIO_STATE_CONNECTING:
                         Log.d(TAG, "bluetoothBroadcastReceiver.onReceive(): AudioManager.SCO_AUDIO_STATE_CONNECTING");
@@ -346,12 +442,12 @@ class OTCustomAudioDriver extends BaseAudioDevice {
     }
 
     private void stopRendererAndCapturer() {
-        if (isRendering) {
+        if (isRendering()) {
             stopRenderer();
             wasRendering = true;
         }
 
-        if (isCapturing) {
+        if (isCapturing()) {
             stopCapturer();
             wasCapturing = true;
         }
@@ -416,14 +512,27 @@ class OTCustomAudioDriver extends BaseAudioDevice {
     }
 
     public OTCustomAudioDriver(Context context) {
+        this(context, true, false);
+    }
+
+    /**
+     * @param stereo render in stereo, otherwise in mono.
+     * @param lowLatency use a low latency AudioTrack (Android 8.0+) whose buffer starts at
+     *                   two device bursts and grows by one burst on each underrun.
+     */
+    public OTCustomAudioDriver(Context context, boolean stereo, boolean lowLatency) {
         this.context = context;
+        this.lowLatency = lowLatency;
+        this.renderChannels = stereo ? STEREO_CHANNELS : 1;
 
         try {
-            recBuffer = ByteBuffer.allocateDirect(DEFAULT_BUFFER_SIZE);
+            recBuffer = ByteBuffer.allocateDirect(DEFAULT_BUFFER_SIZE).order(ByteOrder.nativeOrder());
+            convertBuffer = ByteBuffer.allocateDirect(DEFAULT_BUFFER_SIZE).order(ByteOrder.nativeOrder());
         } catch (Exception e) {
             Log.e(TAG, e.getMessage());
         }
-        tempBufRec = new byte[DEFAULT_BUFFER_SIZE];
+        // Four 10 ms chunks of slack between the AudioRecord and the audio bus.
+        captureRing = new PcmRingBuffer(4 * DEFAULT_BUFFER_SIZE / STEREO_CHANNELS * NUM_CHANNELS_CAPTURING);
 
         audioManager = (AudioManager)context.getSystemService(Context.AUDIO_SERVICE);
         bluetoothAdapter = BluetoothAdapter.getDefaultAdapter();
@@ -445,7 +554,7 @@ class OTCustomAudioDriver extends BaseAudioDevice {
                         audioManager.getProperty(AudioManager.PROPERTY_OUTPUT_FRAMES_PER_BUFFER));
                 outputBufferSize = SAMPLE_SIZE_IN_BYTES
                         * samplesPerBuffer
-                        * NUM_CHANNELS_RENDERING;
+                        * renderChannels;
             } catch(NumberFormatException numberFormatException) {
                 Log.e(TAG, "DefaultAudioDevice(): " + numberFormatException.getMessage());
             } finally {
@@ -456,16 +565,33 @@ class OTCustomAudioDriver extends BaseAudioDevice {
             }
         }
 
+        // 10 ms at the native rate, which the AudioRecord may use too.
+        int recordBufferSize = Math.max(DEFAULT_BUFFER_SIZE,
+                SAMPLE_SIZE_IN_BYTES * (outputSamplingRate / 100) * NUM_CHANNELS_CAPTURING);
+        try {
+            recordBuffer = ByteBuffer.allocateDirect(recordBufferSize).order(ByteOrder.nativeOrder());
+        } catch (Exception e) {
+            Log.e(TAG, e.getMessage());
+        }
+        if (!USE_DIRECT_BUFFERS) {
+            tempBufRec = new byte[recordBufferSize];
+        }
+
         try {
             playBuffer = ByteBuffer.allocateDirect(outputBufferSize);
+            trackBuffer = ByteBuffer.allocateDirect(outputBufferSize);
         } catch (Exception e) {
             Log.e(TAG, e.getMessage());
         }
 
-        tempBufPlay = new byte[outputBufferSize];
+        if (!USE_DIRECT_BUFFERS) {
+            tempBufPlay = new byte[outputBufferSize];
+        }
+        // Two device buffers of slack between the audio bus and the AudioTrack.
+        renderRing = new PcmRingBuffer(2 * outputBufferSize);
 
         captureSettings = new AudioSettings(captureSamplingRate, NUM_CHANNELS_CAPTURING);
-        rendererSettings = new AudioSettings(outputSamplingRate, NUM_CHANNELS_RENDERING);
+        rendererSettings = new AudioSettings(outputSamplingRate, renderChannels);
 
         try {
             telephonyManager = (TelephonyManager) context.getSystemService(Context.TELEPHONY_SERVICE);
@@ -483,9 +609,58 @@ class OTCustomAudioDriver extends BaseAudioDevice {
 
     @Override
     public boolean initCapturer() {
+        // release the object
+        releaseAudioEffects();
+
+        if (audioRecord != null) {
+            audioRecord.release();
+            audioRecord = null;
+        }
+
+        setUpCaptureConversion();
+        audioRecord = createAudioRecord();
+        attachAudioEffects(audioRecord);
+
+        registerPhoneStateListener();
+
+        captureState.set(STATE_STOPPED);
+        if (captureDeviceThread == null) {
+            captureDeviceThread = startAudioThread(captureThread, "OTCaptureThread");
+            captureBusThread = startAudioThread(captureBusPump, "OTCaptureBusThread");
+        }
+        return true;
+    }
+
+    /**
+     * Records at the native output rate, which is also the native input rate on most devices,
+     * unless the AudioRecord does not support it or the converter cannot handle the ratio.
+     */
+    private void setUpCaptureConversion() {
+        int channelConfig = NUM_CHANNELS_CAPTURING == 1 ? AudioFormat.CHANNEL_IN_MONO : AudioFormat.CHANNEL_IN_STEREO;
+        recordSamplingRate = captureSamplingRate;
+        captureConverter = null;
+        if (outputSamplingRate == captureSamplingRate
+                || AudioRecord.getMinBufferSize(outputSamplingRate, channelConfig, AudioFormat.ENCODING_PCM_16BIT) <= 0) {
+            return;
+        }
+        try {
+            PcmConverter converter = new PcmConverter(outputSamplingRate, NUM_CHANNELS_CAPTURING,
+                    captureSamplingRate, NUM_CHANNELS_CAPTURING);
+            int samplesToRec = outputSamplingRate / 100;
+            if (converter.maxOutputFrames(samplesToRec) * SAMPLE_SIZE_IN_BYTES * NUM_CHANNELS_CAPTURING
+                    <= convertBuffer.capacity()) {
+                captureConverter = converter;
+                recordSamplingRate = outputSamplingRate;
+            }
+        } catch (IllegalArgumentException e) {
+            Log.e(TAG, "setUpCaptureConversion(): " + e.getMessage());
+        }
+    }
+
+    private AudioRecord createAudioRecord() {
         // get the minimum buffer size that can be used
         int minRecBufSize = AudioRecord.getMinBufferSize(
-                captureSettings.getSampleRate(),
+                recordSamplingRate,
                 NUM_CHANNELS_CAPTURING == 1 ? AudioFormat.CHANNEL_IN_MONO : AudioFormat.CHANNEL_IN_STEREO,
                 AudioFormat.ENCODING_PCM_16BIT
         );
@@ -493,69 +668,52 @@ class OTCustomAudioDriver extends BaseAudioDevice {
         // double size to be more safe
         int recBufSize = minRecBufSize * 2;
 
-        // release the object
-        if (noiseSuppressor != null) {
-            noiseSuppressor.release();
-            noiseSuppressor = null;
-        }
-
-        if (echoCanceler != null) {
-            echoCanceler.release();
-            echoCanceler = null;
-        }
-
-        if (audioRecord != null) {
-            audioRecord.release();
-            audioRecord = null;
-        }
-
+        AudioRecord record;
         try {
             int channelConfig = NUM_CHANNELS_CAPTURING == 1 ? AudioFormat.CHANNEL_IN_MONO : AudioFormat.CHANNEL_IN_STEREO;
 
-            audioRecord = new AudioRecord(
+            record = new AudioRecord(
                     AudioSource.VOICE_COMMUNICATION,
-                    captureSettings.getSampleRate(),
+                    recordSamplingRate,
                     channelConfig,
                     AudioFormat.ENCODING_PCM_16BIT, recBufSize);
-
-            if (NoiseSuppressor.isAvailable()) {
-                noiseSuppressor = NoiseSuppressor.create(audioRecord.getAudioSessionId());
-            }
-
-            if (AcousticEchoCanceler.isAvailable()) {
-                echoCanceler = AcousticEchoCanceler.create(audioRecord.getAudioSessionId());
-            }
-
         } catch (Exception e) {
             throw new RuntimeException(e.getMessage());
         }
 
         // Check that the audioRecord is ready to be used.
-        if (audioRecord.getState() != AudioRecord.STATE_INITIALIZED) {
+        if (record.getState() != AudioRecord.STATE_INITIALIZED) {
+            record.release();
             String errorDescription = String.format(Locale.getDefault(), "Audio capture could not be initialized.\n" +
                             "Requested parameters\n" +
                             "  Sampling Rate: %d\n" +
                             "  Number of channels: %d\n" +
                             "  Buffer size: %d\n",
-                    captureSettings.getSampleRate(),
+                    recordSamplingRate,
                     captureSettings.getNumChannels(),
                     minRecBufSize);
             Log.e(TAG, errorDescription);
             throw new RuntimeException(errorDescription);
         }
+        return record;
+    }
 
-        registerPhoneStateListener();
+    private void attachAudioEffects(AudioRecord record) {
+        releaseAudioEffects();
+        try {
+            if (NoiseSuppressor.isAvailable()) {
+                noiseSuppressor = NoiseSuppressor.create(record.getAudioSessionId());
+            }
 
-        shutdownCaptureThread = false;
-        new Thread(captureThread).start();
-        return true;
+            if (AcousticEchoCanceler.isAvailable()) {
+                echoCanceler = AcousticEchoCanceler.create(record.getAudioSessionId());
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "attachAudioEffects(): " + e.getMessage());
+        }
     }
 
-    @Override
-    public boolean destroyCapturer() {
-        captureLock.lock();
-
-        // release the object
+    private void releaseAudioEffects() {
         if (null != echoCanceler) {
             echoCanceler.release();
             echoCanceler = null;
@@ -565,13 +723,34 @@ class OTCustomAudioDriver extends BaseAudioDevice {
             noiseSuppressor.release();
             noiseSuppressor = null;
         }
+    }
 
-        audioRecord.release();
-        audioRecord = null;
-        shutdownCaptureThread = true;
-        captureEvent.signal();
+    @Override
+    public boolean destroyCapturer() {
+        captureState.set(STATE_DESTROYED);
+        synchronized (captureControlLock) {
+            // Unblock a pending read before waiting for the capture threads to go idle.
+            try {
+                if (audioRecord.getRecordingState() == AudioRecord.RECORDSTATE_RECORDING) {
+                    audioRecord.stop();
+                }
+            } catch (IllegalStateException e) {
+                Log.e(TAG, "destroyCapturer(): " + e.getMessage());
+            }
+        }
+        boolean stopped = stopAudioThread(captureDeviceThread) & stopAudioThread(captureBusThread);
+        captureDeviceThread = null;
+        captureBusThread = null;
 
-        captureLock.unlock();
+        // release the object
+        releaseAudioEffects();
+        if (stopped) {
+            audioRecord.release();
+        } else {
+            // Still in use by a capture thread: leave it to the garbage collector.
+            Log.e(TAG, "destroyCapturer(): capture threads did not stop, AudioRecord not released");
+        }
+        audioRecord = null;
 
         unRegisterPhoneStateListener();
         wasCapturing = false;
@@ -582,51 +761,55 @@ class OTCustomAudioDriver extends BaseAudioDevice {
         return estimatedCaptureDelay;
     }
 
+    private boolean isCapturing() {
+        return captureState.get() == STATE_STARTED;
+    }
+
     @Override
     public boolean startCapturer() {
-        if (audioRecord == null) {
-            throw new IllegalStateException("startCapturer(): startRecording() called on an "
-                    + "uninitialized AudioRecord");
-        }
-        try {
-            audioRecord.startRecording();
+        synchronized (captureControlLock) {
+            if (audioRecord == null) {
+                throw new IllegalStateException("startCapturer(): startRecording() called on an "
+                        + "uninitialized AudioRecord");
+            }
+            try {
+                audioRecord.startRecording();
 
-        } catch (IllegalStateException e) {
-            throw new RuntimeException(e.getMessage());
+            } catch (IllegalStateException e) {
+                throw new RuntimeException(e.getMessage());
+            }
+            captureState.compareAndSet(STATE_STOPPED, STATE_STARTED);
         }
-
-        captureLock.lock();
-        isCapturing = true;
-        captureEvent.signal();
-        captureLock.unlock();
+        LockSupport.unpark(captureDeviceThread);
+        LockSupport.unpark(captureBusThread);
         return true;
     }
 
     @Override
     public boolean stopCapturer() {
-
-        if (audioRecord == null) {
-            throw new IllegalStateException("stopCapturer(): stop() called on an uninitialized AudioRecord");
-        }
-        captureLock.lock();
-        try {
-            // Only stop if we are recording.
-            if (audioRecord.getRecordingState() == AudioRecord.RECORDSTATE_RECORDING) {
-                audioRecord.stop();
+        synchronized (captureControlLock) {
+            if (audioRecord == null) {
+                throw new IllegalStateException("stopCapturer(): stop() called on an uninitialized AudioRecord");
+            }
+            // Change the state first so the capture thread ignores a read interrupted by stop().
+            captureState.compareAndSet(STATE_STARTED, STATE_STOPPED);
+            try {
+                // Only stop if we are recording.
+                if (audioRecord.getRecordingState() == AudioRecord.RECORDSTATE_RECORDING) {
+                    audioRecord.stop();
+                }
+            } catch (Exception e) {
+                throw new RuntimeException(e.getMessage());
             }
-        } catch (Exception e) {
-            throw new RuntimeException(e.getMessage());
-        } finally {
-            // Ensure we always unlock
-            isCapturing = false;
-            captureLock.unlock();
         }
         return true;
     }
 
-    private Runnable captureThread = () -> {
-        int samplesToRec = captureSamplingRate / 100;
-        int samplesRead;
+    private final Runnable captureThread = () -> {
+        int samplesToRec = 0;
+        int lengthInBytes = 0;
+        int bytesPerFrame = SAMPLE_SIZE_IN_BYTES * NUM_CHANNELS_CAPTURING;
+        boolean restarted = true;
 
         try {
             android.os.Process.setThreadPriority(android.os.Process.THREAD_PRIORITY_URGENT_AUDIO);
@@ -634,45 +817,322 @@ class OTCustomAudioDriver extends BaseAudioDevice {
             Log.e(TAG, "android.os.Process.setThreadPriority(): " + e.getMessage());
         }
 
-        while (!shutdownCaptureThread) {
-            captureLock.lock();
-            try {
-                if (!this.isCapturing) {
-                    captureEvent.await();
-                    continue;
-                } else {
-                    if (audioRecord == null) {
-                        continue;
-                    }
-                    int lengthInBytes = (samplesToRec << 1) * NUM_CHANNELS_CAPTURING;
-                    int readBytes = audioRecord.read(tempBufRec, 0, lengthInBytes);
-                    if (readBytes >= 0) {
-                        recBuffer.rewind();
-                        recBuffer.put(tempBufRec);
-                        samplesRead = (readBytes >> 1) / NUM_CHANNELS_CAPTURING;
-                    } else {
-                        switch (readBytes) {
-                            case AudioRecord.ERROR_BAD_VALUE:
-                                throw new RuntimeException("captureThread(): AudioRecord.ERROR_BAD_VALUE");
-                            case AudioRecord.ERROR_INVALID_OPERATION:
-                                throw new RuntimeException("captureThread(): AudioRecord.ERROR_INVALID_OPERATION");
-                            case AudioRecord.ERROR:
-                            default:
-                                throw new RuntimeException("captureThread(): AudioRecord.ERROR or default");
-                        }
-                    }
+        while (captureState.get() != STATE_DESTROYED) {
+            if (!isCapturing() || audioRecord == null) {
+                captureFailures = 0;
+                restarted = true;
+                LockSupport.park(this);
+                continue;
+            }
+            if (captureRestartRequested) {
+                captureRestartRequested = false;
+                recreateAudioRecord();
+                restarted = true;
+            }
+            if (restarted) {
+                // Frame positions start over with each recording, which may use a new rate.
+                restarted = false;
+                samplesToRec = recordSamplingRate / 100;
+                lengthInBytes = samplesToRec * bytesPerFrame;
+                if (captureConverter != null) {
+                    captureConverter.reset();
                 }
-            } catch (Exception e) {
-                throw new RuntimeException(e.getMessage());
-            } finally {
-                // Ensure we always unlock
-                captureLock.unlock();
+                framesRead = 0;
+                hasCaptureTimestamp = false;
+                lastCaptureTimestampPoll = 0;
+                captureDelayEstimator.reset();
+            }
+            long loopStart = System.nanoTime();
+            int readBytes;
+            recordBuffer.clear();
+            if (USE_DIRECT_BUFFERS) {
+                readBytes = audioRecord.read(recordBuffer, lengthInBytes);
+            } else {
+                readBytes = audioRecord.read(tempBufRec, 0, lengthInBytes);
+                if (readBytes > 0) {
+                    recordBuffer.put(tempBufRec, 0, readBytes);
+                }
+            }
+            if (readBytes < 0) {
+                // A read interrupted by stopCapturer() is not an error.
+                if (isCapturing()) {
+                    recoverCapturer("AudioRecord.read() failed: " + describeIoError(readBytes));
+                    restarted = true;
+                }
+                continue;
+            }
+            if (captureFailures > 0) {
+                reportAudioError(DIRECTION_CAPTURE, STATUS_RECOVERED, "", captureFailures);
+                captureFailures = 0;
+            }
+            ByteBuffer captured = recordBuffer;
+            int capturedBytes = readBytes;
+            if (captureConverter != null && readBytes > 0) {
+                capturedBytes = captureConverter.convert(recordBuffer, readBytes / bytesPerFrame, convertBuffer) * bytesPerFrame;
+                captured = convertBuffer;
+            }
+            if (capturedBytes > 0 && !captureRing.write(captured, capturedBytes)) {
+                // The audio bus is not keeping up: drop the newest data.
+                telemetry.capture.glitches++;
+            }
+            LockSupport.unpark(captureBusThread);
+            framesRead += readBytes / bytesPerFrame;
+            updateCaptureDelay(readBytes / bytesPerFrame);
+
+            telemetry.capture.calls++;
+            if (readBytes < lengthInBytes) {
+                telemetry.capture.shortCalls++;
             }
-            getAudioBus().writeCaptureData(recBuffer, samplesRead);
-            estimatedCaptureDelay = samplesRead * 1000 / captureSamplingRate;
+            telemetry.capture.frames += readBytes / bytesPerFrame;
+            telemetry.capture.callSize.record(readBytes / bytesPerFrame);
+            telemetry.capture.loopTime.record((System.nanoTime() - loopStart) / 1000);
         }
     };
 
+    private final Runnable captureBusPump = () -> {
+        int samplesToRec = captureSamplingRate / 100;
+        int bytesPerFrame = SAMPLE_SIZE_IN_BYTES * NUM_CHANNELS_CAPTURING;
+        int lengthInBytes = samplesToRec * bytesPerFrame;
+
+        try {
+            android.os.Process.setThreadPriority(android.os.Process.THREAD_PRIORITY_AUDIO);
+        } catch (Exception e) {
+            Log.e(TAG, "android.os.Process.setThreadPriority(): " + e.getMessage());
+        }
+
+        while (captureState.get() != STATE_DESTROYED) {
+            if (!isCapturing()) {
+                // Drop whatever was captured before the capturer stopped.
+                captureRing.skip(captureRing.capacity());
+                LockSupport.park(this);
+                continue;
+            }
+            if (!captureRing.read(recBuffer, lengthInBytes)) {
+                long waitStart = System.nanoTime();
+                LockSupport.park(this);
+                telemetry.capture.waitTime.record((System.nanoTime() - waitStart) / 1000);
+                continue;
+            }
+            OTAudioProcessingChain processing = captureProcessing;
+            if (processing != null) {
+                processing.process(recBuffer, samplesToRec);
+            }
+            WavFileWriter tap = captureTap;
+            if (tap != null) {
+                recordTap(tap, recBuffer, lengthInBytes, telemetry.capture);
+            }
+            getAudioBus().writeCaptureData(recBuffer, samplesToRec);
+            int queuedSamples = captureRing.availableToRead() / bytesPerFrame;
+            estimatedCaptureDelay = captureDelayEstimator.getDelay() + queuedSamples * 1000 / captureSamplingRate;
+            telemetry.capture.estimatedDelay = estimatedCaptureDelay;
+        }
+    };
+
+    /**
+     * Capture thread only. Re-creates the AudioRecord after a read error, waiting longer after
+     * each consecutive failure, and stops capturing after MAX_RESTART_ATTEMPTS failures.
+     */
+    private void recoverCapturer(String message) {
+        Log.e(TAG, "captureThread(): " + message);
+        captureFailures++;
+        if (captureFailures > MAX_RESTART_ATTEMPTS) {
+            captureState.compareAndSet(STATE_STARTED, STATE_STOPPED);
+            reportAudioError(DIRECTION_CAPTURE, STATUS_FAILED, message, captureFailures);
+            return;
+        }
+        reportAudioError(DIRECTION_CAPTURE, STATUS_RETRYING, message, captureFailures);
+
+        LockSupport.parkNanos(this, RESTART_BACKOFF_NS << (captureFailures - 1));
+        recreateAudioRecord();
+    }
+
+    /**
+     * Capture thread only. Replaces the AudioRecord with a new recording one. On failure the
+     * current AudioRecord is kept, and the next read error triggers another attempt.
+     */
+    private void recreateAudioRecord() {
+        synchronized (captureControlLock) {
+            if (!isCapturing()) {
+                return;
+            }
+            AudioRecord record;
+            try {
+                record = createAudioRecord();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "recreateAudioRecord(): " + e.getMessage());
+                return;
+            }
+            try {
+                record.startRecording();
+            } catch (IllegalStateException e) {
+                Log.e(TAG, "recreateAudioRecord(): " + e.getMessage());
+                record.release();
+                return;
+            }
+            AudioRecord oldRecord = audioRecord;
+            audioRecord = record;
+            attachAudioEffects(record);
+            if (oldRecord != null) {
+                oldRecord.release();
+            }
+        }
+    }
+
+    /**
+     * Measures how long ago the last frame read was captured, from the AudioRecord timestamp
+     * (Android 7.0+), or falls back to the duration of the frames read.
+     */
+    private void updateCaptureDelay(int samplesRead) {
+        long now = System.nanoTime();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N
+                && now - lastCaptureTimestampPoll >= TIMESTAMP_POLL_INTERVAL_NS) {
+            lastCaptureTimestampPoll = now;
+            if (captureTimestamp == null) {
+                captureTimestamp = new AudioTimestamp();
+            }
+            hasCaptureTimestamp = audioRecord.getTimestamp(captureTimestamp,
+                    AudioTimestamp.TIMEBASE_MONOTONIC) == AudioRecord.SUCCESS;
+        }
+        if (hasCaptureTimestamp) {
+            double captureTime = captureTimestamp.nanoTime
+                    + (framesRead - captureTimestamp.framePosition) * 1e9 / recordSamplingRate;
+            double delay = (now - captureTime) / 1e6;
+            if (delay >= 0 && delay <= MAX_TIMESTAMP_DELAY) {
+                captureDelayEstimator.update(delay, true);
+                return;
+            }
+        }
+        captureDelayEstimator.update(samplesRead * 1000.0 / recordSamplingRate, false);
+    }
+
+    private static Thread startAudioThread(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Wakes up an audio thread, whose direction must already be destroyed, and waits for it to
+     * return.
+     *
+     * @return false if the thread is still running after THREAD_JOIN_TIMEOUT_MS.
+     */
+    private static boolean stopAudioThread(Thread thread) {
+        if (thread == null) {
+            return true;
+        }
+        LockSupport.unpark(thread);
+        try {
+            thread.join(THREAD_JOIN_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            Log.e(TAG, "stopAudioThread(): " + thread.getName() + " is still running");
+            return false;
+        }
+        return true;
+    }
+
+    private static String describeIoError(int error) {
+        switch (error) {
+            case AudioTrack.ERROR_BAD_VALUE:
+                return "ERROR_BAD_VALUE";
+            case AudioTrack.ERROR_INVALID_OPERATION:
+                return "ERROR_INVALID_OPERATION";
+            case AudioTrack.ERROR_DEAD_OBJECT:
+                return "ERROR_DEAD_OBJECT";
+            case AudioTrack.ERROR:
+            default:
+                return "ERROR (" + error + ")";
+        }
+    }
+
+    private void reportAudioError(String direction, String status, String message, int attempt) {
+        AudioErrorListener listener = audioErrorListener;
+        if (listener != null) {
+            listener.onAudioError(direction, status, message, attempt);
+        }
+    }
+
+    void setAudioErrorListener(AudioErrorListener listener) {
+        audioErrorListener = listener;
+    }
+
+    /**
+     * @param processing the chain to run on captured audio, or null to send it unprocessed.
+     */
+    void setCaptureProcessing(OTAudioProcessingChain processing) {
+        captureProcessing = processing;
+    }
+
+    OTAudioProcessingChain getCaptureProcessing() {
+        return captureProcessing;
+    }
+
+    private static void recordTap(WavFileWriter tap, ByteBuffer buffer, int length, OTAudioTelemetry.Direction direction) {
+        long tapStart = System.nanoTime();
+        tap.offer(buffer, length);
+        long tapTime = System.nanoTime() - tapStart;
+        direction.tapTime.record(tapTime);
+        if (tapTime > TAP_BUDGET_NS) {
+            direction.tapOverBudget++;
+        }
+    }
+
+    /**
+     * Starts writing the captured audio (as sent to the SDK) and the rendered audio (all
+     * subscribers mixed) to two WAV files. Any recording in progress is stopped first.
+     */
+    void startRecording(File captureFile, File renderFile) throws IOException {
+        stopRecording();
+        int captureBufferSize = TAP_BUFFER_SECONDS * captureSamplingRate * SAMPLE_SIZE_IN_BYTES * NUM_CHANNELS_CAPTURING;
+        int renderBufferSize = TAP_BUFFER_SECONDS * outputSamplingRate * SAMPLE_SIZE_IN_BYTES * renderChannels;
+        WavFileWriter capture = new WavFileWriter(captureFile, captureSamplingRate, NUM_CHANNELS_CAPTURING, captureBufferSize);
+        WavFileWriter render;
+        try {
+            render = new WavFileWriter(renderFile, outputSamplingRate, renderChannels, renderBufferSize);
+        } catch (IOException e) {
+            capture.close();
+            throw e;
+        }
+        captureTap = capture;
+        renderTap = render;
+    }
+
+    /**
+     * Stops the recording and completes the files.
+     *
+     * @return the capture and render writers, or null when not recording.
+     */
+    WavFileWriter[] stopRecording() throws IOException {
+        WavFileWriter capture = captureTap;
+        WavFileWriter render = renderTap;
+        captureTap = null;
+        renderTap = null;
+        if (capture == null || render == null) {
+            return null;
+        }
+        try {
+            capture.close();
+        } finally {
+            render.close();
+        }
+        return new WavFileWriter[]{capture, render};
+    }
+
+    /**
+     * Asks the audio threads to re-create the AudioTrack and AudioRecord, which can stop working
+     * when the audio route changes (e.g. Bluetooth SCO connecting or disconnecting).
+     */
+    private void requestDeviceRestart() {
+        renderRestartRequested = true;
+        captureRestartRequested = true;
+        LockSupport.unpark(renderDeviceThread);
+        LockSupport.unpark(captureDeviceThread);
+    }
+
 
     @Override
     public boolean initRenderer() {
@@ -695,12 +1155,6 @@ class OTCustomAudioDriver extends BaseAudioDevice {
         bluetoothState = BluetoothState.Disconnected;
         /* register for bluetooth sco callbacks and attempt to enable it */
         enableBluetoothEvents();
-        // get the minimum buffer size that can be used
-        int minPlayBufSize = AudioTrack.getMinBufferSize(
-                rendererSettings.getSampleRate(),
-                NUM_CHANNELS_RENDERING == 1 ? AudioFormat.CHANNEL_OUT_MONO : AudioFormat.CHANNEL_OUT_STEREO,
-                AudioFormat.ENCODING_PCM_16BIT
-        );
 
         // release the object
         if (audioTrack != null) {
@@ -708,42 +1162,121 @@ class OTCustomAudioDriver extends BaseAudioDevice {
             audioTrack = null;
         }
 
+        audioTrack = createAudioTrack();
+
+        bufferedPlaySamples = 0;
+
+        registerPhoneStateListener();
+
+        renderState.set(STATE_STOPPED);
+        if (renderDeviceThread == null) {
+            renderDeviceThread = startAudioThread(renderThread, "OTRenderThread");
+            renderBusThread = startAudioThread(renderBusPump, "OTRenderBusThread");
+        }
+        return true;
+    }
+
+    private AudioTrack createAudioTrack() {
+        // get the minimum buffer size that can be used
+        int minPlayBufSize = AudioTrack.getMinBufferSize(
+                rendererSettings.getSampleRate(),
+                renderChannels == 1 ? AudioFormat.CHANNEL_OUT_MONO : AudioFormat.CHANNEL_OUT_STEREO,
+                AudioFormat.ENCODING_PCM_16BIT
+        );
+
+        AudioTrack track;
         try {
-            int channelConfig = (NUM_CHANNELS_RENDERING == 1) ? AudioFormat.CHANNEL_OUT_MONO : AudioFormat.CHANNEL_OUT_STEREO;
+            int channelConfig = (renderChannels == 1) ? AudioFormat.CHANNEL_OUT_MONO : AudioFormat.CHANNEL_OUT_STEREO;
 
-            audioTrack = new AudioTrack(
-                    AudioManager.STREAM_VOICE_CALL,
-                    rendererSettings.getSampleRate(),
-                    channelConfig,
-                    AudioFormat.ENCODING_PCM_16BIT,
-                    minPlayBufSize >= 6000 ? minPlayBufSize : minPlayBufSize * 2,
-                    AudioTrack.MODE_STREAM
-            );
+            if (lowLatency && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                track = createLowLatencyAudioTrack(channelConfig, minPlayBufSize);
+            } else {
+                track = new AudioTrack(
+                        AudioManager.STREAM_VOICE_CALL,
+                        rendererSettings.getSampleRate(),
+                        channelConfig,
+                        AudioFormat.ENCODING_PCM_16BIT,
+                        minPlayBufSize >= 6000 ? minPlayBufSize : minPlayBufSize * 2,
+                        AudioTrack.MODE_STREAM
+                );
+                tuneBufferSize = false;
+            }
         } catch (Exception e) {
             throw new RuntimeException(e.getMessage());
         }
 
-        // Check that the audioRecord is ready to be used.
-        if (audioTrack.getState() != AudioTrack.STATE_INITIALIZED) {
+        // Check that the audioTrack is ready to be used.
+        if (track.getState() != AudioTrack.STATE_INITIALIZED) {
+            track.release();
             throw new RuntimeException("Audio renderer not initialized " + rendererSettings.getSampleRate());
         }
+        return track;
+    }
 
-        bufferedPlaySamples = 0;
-
-        registerPhoneStateListener();
+    private AudioTrack createLowLatencyAudioTrack(int channelConfig, int minPlayBufSize) {
+        int burstSizeInBytes = samplesPerBuffer * SAMPLE_SIZE_IN_BYTES * renderChannels;
+
+        AudioTrack track = new AudioTrack.Builder()
+                .setAudioAttributes(new AudioAttributes.Builder()
+                        .setUsage(AudioAttributes.USAGE_VOICE_COMMUNICATION)
+                        .setContentType(AudioAttributes.CONTENT_TYPE_SPEECH)
+                        .build())
+                .setAudioFormat(new AudioFormat.Builder()
+                        .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                        .setSampleRate(rendererSettings.getSampleRate())
+                        .setChannelMask(channelConfig)
+                        .build())
+                .setBufferSizeInBytes(Math.max(minPlayBufSize, LOW_LATENCY_MAX_BURSTS * burstSizeInBytes))
+                .setTransferMode(AudioTrack.MODE_STREAM)
+                .setPerformanceMode(AudioTrack.PERFORMANCE_MODE_LOW_LATENCY)
+                .build();
+
+        // Start small and let the render thread grow the buffer when it underruns.
+        track.setBufferSizeInFrames(LOW_LATENCY_INITIAL_BURSTS * samplesPerBuffer);
+        lastUnderrunCount = track.getUnderrunCount();
+        tuneBufferSize = true;
+        Log.d(TAG, "createLowLatencyAudioTrack(): buffer " + track.getBufferSizeInFrames()
+                + " of " + track.getBufferCapacityInFrames() + " frames");
+        return track;
+    }
 
-        shutdownRenderThread = false;
-        new Thread(renderThread).start();
-        return true;
+    /**
+     * Grows the AudioTrack buffer by one burst each time new underruns are reported.
+     */
+    private void tuneAudioTrackBufferSize(int underrunCount) {
+        if (underrunCount <= lastUnderrunCount) {
+            return;
+        }
+        lastUnderrunCount = underrunCount;
+        int bufferSize = audioTrack.getBufferSizeInFrames();
+        if (bufferSize + samplesPerBuffer <= audioTrack.getBufferCapacityInFrames()) {
+            audioTrack.setBufferSizeInFrames(bufferSize + samplesPerBuffer);
+        }
     }
 
     private void destroyAudioTrack() {
-        rendererLock.lock();
-        audioTrack.release();
+        renderState.set(STATE_DESTROYED);
+        synchronized (renderControlLock) {
+            // Unblock a pending write before waiting for the render threads to go idle.
+            try {
+                if (audioTrack.getPlayState() == AudioTrack.PLAYSTATE_PLAYING) {
+                    audioTrack.stop();
+                }
+            } catch (IllegalStateException e) {
+                Log.e(TAG, "destroyAudioTrack(): " + e.getMessage());
+            }
+        }
+        boolean stopped = stopAudioThread(renderDeviceThread) & stopAudioThread(renderBusThread);
+        renderDeviceThread = null;
+        renderBusThread = null;
+
+        if (stopped) {
+            audioTrack.release();
+        } else {
+            // Still in use by a render thread: leave it to the garbage collector.
+            Log.e(TAG, "destroyAudioTrack(): render threads did not stop, AudioTrack not released");
+        }
         audioTrack = null;
-        shutdownRenderThread = true;
-        renderEvent.signal();
-        rendererLock.unlock();
     }
 
     @Override
@@ -763,6 +1296,10 @@ class OTCustomAudioDriver extends BaseAudioDevice {
         return estimatedRenderDelay;
     }
 
+    private boolean isRendering() {
+        return renderState.get() == STATE_STARTED;
+    }
+
     @Override
     public boolean startRenderer() {
         Log.d("AUDIO_FOCUS", "Start Renderer");
@@ -783,19 +1320,20 @@ class OTCustomAudioDriver extends BaseAudioDevice {
         }
 
         // Start playout.
-        if (audioTrack == null) {
-            throw new IllegalStateException("startRenderer(): play() called on uninitialized AudioTrack");
-        }
-        try {
-            audioTrack.play();
-        } catch (IllegalStateException e) {
-            throw new RuntimeException(e.getMessage());
-        }
+        synchronized (renderControlLock) {
+            if (audioTrack == null) {
+                throw new IllegalStateException("startRenderer(): play() called on uninitialized AudioTrack");
+            }
+            try {
+                audioTrack.play();
+            } catch (IllegalStateException e) {
+                throw new RuntimeException(e.getMessage());
+            }
 
-        rendererLock.lock();
-        isRendering = true;
-        renderEvent.signal();
-        rendererLock.unlock();
+            renderState.compareAndSet(STATE_STOPPED, STATE_STARTED);
+        }
+        LockSupport.unpark(renderBusThread);
+        LockSupport.unpark(renderDeviceThread);
         registerBtReceiver();
         registerHeadsetReceiver();
         return true;
@@ -805,24 +1343,23 @@ class OTCustomAudioDriver extends BaseAudioDevice {
     public boolean stopRenderer() {
         Log.d("AUDIO_FOCUS", "Stop Renderer");
 
-        if (audioTrack == null) {
-            throw new IllegalStateException("stopRenderer(): stop() called on uninitialized AudioTrack");
-        }
-
-        rendererLock.lock();
+        synchronized (renderControlLock) {
+            if (audioTrack == null) {
+                throw new IllegalStateException("stopRenderer(): stop() called on uninitialized AudioTrack");
+            }
 
-        try {
-            // Only stop if we are playing.
-            if (audioTrack.getPlayState() == AudioTrack.PLAYSTATE_PLAYING) {
-                audioTrack.stop();
+            // Change the state first so the render thread ignores a write interrupted by stop().
+            renderState.compareAndSet(STATE_STARTED, STATE_STOPPED);
+            try {
+                // Only stop if we are playing.
+                if (audioTrack.getPlayState() == AudioTrack.PLAYSTATE_PLAYING) {
+                    audioTrack.stop();
 
+                }
+                audioTrack.flush();
+            } catch (Exception e) {
+                throw new RuntimeException(e.getMessage());
             }
-            audioTrack.flush();
-        } catch (Exception e) {
-            throw new RuntimeException(e.getMessage());
-        } finally {
-            isRendering = false;
-            rendererLock.unlock();
         }
         audioManagerMode.releaseMode(audioManager);
 
@@ -831,74 +1368,229 @@ class OTCustomAudioDriver extends BaseAudioDevice {
         return true;
     }
 
-    private Runnable renderThread = () -> {
-        int samplesToPlay = samplesPerBuffer;
+    private final Runnable renderThread = () -> {
+        int bytesPerFrame = SAMPLE_SIZE_IN_BYTES * renderChannels;
+        boolean restarted = true;
         try {
             android.os.Process.setThreadPriority(android.os.Process.THREAD_PRIORITY_URGENT_AUDIO);
         } catch (Exception e) {
             Log.e(TAG, "android.os.Process.setThreadPriority(): " + e.getMessage());
         }
 
-        while (!shutdownRenderThread) {
-            rendererLock.lock();
-            try {
-                if (!this.isRendering) {
-                    renderEvent.await();
-                    continue;
-
-                } else {
-                    rendererLock.unlock();
-
-                    // Don't lock on audioBus calls
-                    playBuffer.clear();
-                    int samplesRead = getAudioBus().readRenderData(playBuffer, samplesToPlay);
+        while (renderState.get() != STATE_DESTROYED) {
+            if (!isRendering() || audioTrack == null) {
+                // Drop whatever was queued before the renderer stopped.
+                renderRing.skip(renderRing.capacity());
+                renderFailures = 0;
+                restarted = true;
+                LockSupport.park(this);
+                continue;
+            }
+            if (renderRestartRequested) {
+                renderRestartRequested = false;
+                recreateAudioTrack();
+                restarted = true;
+            }
+            if (restarted) {
+                // The track was flushed on stop or replaced, so frame positions start over.
+                restarted = false;
+                bufferedPlaySamples = 0;
+                playPosition = 0;
+                framesWritten = 0;
+                hasRenderTimestamp = false;
+                lastRenderTimestampPoll = 0;
+                renderDelayEstimator.reset();
+            }
+            int bytesToWrite = Math.min(renderRing.availableToRead(), trackBuffer.capacity());
+            if (bytesToWrite == 0 || !renderRing.read(trackBuffer, bytesToWrite)) {
+                // The audio bus has not provided data in time.
+                telemetry.render.glitches++;
+                long waitStart = System.nanoTime();
+                LockSupport.park(this);
+                telemetry.render.waitTime.record((System.nanoTime() - waitStart) / 1000);
+                continue;
+            }
+            long loopStart = System.nanoTime();
+            LockSupport.unpark(renderBusThread);
 
-                    rendererLock.lock();
+            int bytesWritten;
+            if (USE_DIRECT_BUFFERS) {
+                bytesWritten = audioTrack.write(trackBuffer, bytesToWrite, AudioTrack.WRITE_BLOCKING);
+            } else {
+                trackBuffer.get(tempBufPlay, 0, bytesToWrite);
+                bytesWritten = audioTrack.write(tempBufPlay, 0, bytesToWrite);
+            }
 
-                    // After acquiring the lock again we must check if we are still playing
-                    if (audioTrack == null || !this.isRendering) {
-                        continue;
+            if (bytesWritten > 0) {
+                if (renderFailures > 0) {
+                    reportAudioError(DIRECTION_RENDER, STATUS_RECOVERED, "", renderFailures);
+                    renderFailures = 0;
+                }
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+                    int underrunCount = audioTrack.getUnderrunCount();
+                    telemetry.render.deviceGlitches = underrunCount;
+                    if (tuneBufferSize) {
+                        tuneAudioTrackBufferSize(underrunCount);
                     }
+                }
 
-                    int bytesRead = (samplesRead << 1) * NUM_CHANNELS_RENDERING;
-                    playBuffer.get(tempBufPlay, 0, bytesRead);
+                // increase by number of written samples
+                bufferedPlaySamples += bytesWritten / bytesPerFrame;
 
-                    int bytesWritten = audioTrack.write(tempBufPlay, 0, bytesRead);
+                // decrease by number of played samples
+                int pos = audioTrack.getPlaybackHeadPosition();
 
-                    if (bytesWritten > 0) {
-                        // increase by number of written samples
-                        bufferedPlaySamples += (bytesWritten >> 1) / NUM_CHANNELS_RENDERING;
+                if (pos < playPosition) {
+                    // wrap or reset by driver
+                    playPosition = 0;
+                }
 
-                        // decrease by number of played samples
-                        int pos = audioTrack.getPlaybackHeadPosition();
+                bufferedPlaySamples -= (pos - playPosition);
+                playPosition = pos;
 
-                        if (pos < playPosition) {
-                            // wrap or reset by driver
-                            playPosition = 0;
-                        }
+                framesWritten += bytesWritten / bytesPerFrame;
+                updateRenderDelay();
 
-                        bufferedPlaySamples -= (pos - playPosition);
-                        playPosition = pos;
-
-                        // we calculate the estimated delay based on the buffered samples
-                        estimatedRenderDelay = bufferedPlaySamples * 1000 / outputSamplingRate;
-                    } else {
-                        switch (bytesWritten) {
-                            case AudioTrack.ERROR_BAD_VALUE:
-                                throw new RuntimeException("renderThread(): AudioTrack.ERROR_BAD_VALUE");
-                            case AudioTrack.ERROR_INVALID_OPERATION:
-                                throw new RuntimeException("renderThread(): AudioTrack.ERROR_INVALID_OPERATION");
-                            case AudioTrack.ERROR:
-                            default:
-                                throw new RuntimeException(
-                                        "renderThread(): AudioTrack.ERROR or default");
-                        }
-                    }
+                // add the samples still waiting in the ring buffer
+                int queuedSamples = renderRing.availableToRead() / bytesPerFrame;
+                estimatedRenderDelay = renderDelayEstimator.getDelay() + queuedSamples * 1000 / outputSamplingRate;
+
+                telemetry.render.calls++;
+                if (bytesWritten < bytesToWrite) {
+                    telemetry.render.shortCalls++;
                 }
-            } catch (Exception e) {
-                throw new RuntimeException(e.getMessage());
-            } finally {
-                rendererLock.unlock();
+                telemetry.render.frames += bytesWritten / bytesPerFrame;
+                telemetry.render.callSize.record(bytesWritten / bytesPerFrame);
+                telemetry.render.loopTime.record((System.nanoTime() - loopStart) / 1000);
+                telemetry.render.estimatedDelay = estimatedRenderDelay;
+            } else if (bytesWritten < 0 && isRendering()) {
+                // A write interrupted by stopRenderer() is not an error.
+                recoverRenderer("AudioTrack.write() failed: " + describeIoError(bytesWritten));
+                restarted = true;
+            }
+        }
+    };
+
+    /**
+     * Render thread only. Re-creates the AudioTrack after a write error, waiting longer after
+     * each consecutive failure, and stops rendering after MAX_RESTART_ATTEMPTS failures.
+     */
+    private void recoverRenderer(String message) {
+        Log.e(TAG, "renderThread(): " + message);
+        renderFailures++;
+        if (renderFailures > MAX_RESTART_ATTEMPTS) {
+            renderState.compareAndSet(STATE_STARTED, STATE_STOPPED);
+            reportAudioError(DIRECTION_RENDER, STATUS_FAILED, message, renderFailures);
+            return;
+        }
+        reportAudioError(DIRECTION_RENDER, STATUS_RETRYING, message, renderFailures);
+
+        LockSupport.parkNanos(this, RESTART_BACKOFF_NS << (renderFailures - 1));
+        recreateAudioTrack();
+    }
+
+    /**
+     * Render thread only. Replaces the AudioTrack with a new playing one. On failure the current
+     * AudioTrack is kept, and the next write error triggers another attempt.
+     */
+    private void recreateAudioTrack() {
+        synchronized (renderControlLock) {
+            if (!isRendering()) {
+                return;
+            }
+            AudioTrack track;
+            try {
+                track = createAudioTrack();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "recreateAudioTrack(): " + e.getMessage());
+                return;
+            }
+            try {
+                track.play();
+            } catch (IllegalStateException e) {
+                Log.e(TAG, "recreateAudioTrack(): " + e.getMessage());
+                track.release();
+                return;
+            }
+            AudioTrack oldTrack = audioTrack;
+            audioTrack = track;
+            lastUnderrunCount = 0;
+            if (oldTrack != null) {
+                oldTrack.release();
+            }
+        }
+    }
+
+    /**
+     * Measures how long until the last frame written is played, from the AudioTrack timestamp
+     * (Android 4.4+), or falls back to the samples written minus the playback head position.
+     */
+    private void updateRenderDelay() {
+        long now = System.nanoTime();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT
+                && now - lastRenderTimestampPoll >= TIMESTAMP_POLL_INTERVAL_NS) {
+            lastRenderTimestampPoll = now;
+            if (renderTimestamp == null) {
+                renderTimestamp = new AudioTimestamp();
+            }
+            hasRenderTimestamp = audioTrack.getTimestamp(renderTimestamp);
+        }
+        if (hasRenderTimestamp) {
+            double framesPlayed = renderTimestamp.framePosition
+                    + (now - renderTimestamp.nanoTime) * outputSamplingRate / 1e9;
+            double delay = (framesWritten - framesPlayed) * 1000 / outputSamplingRate;
+            if (delay >= 0 && delay <= MAX_TIMESTAMP_DELAY) {
+                renderDelayEstimator.update(delay, true);
+                return;
+            }
+        }
+        renderDelayEstimator.update(bufferedPlaySamples * 1000.0 / outputSamplingRate, false);
+    }
+
+    /**
+     * @return whether this driver was created with these options, so a new session can reuse it.
+     */
+    boolean hasOptions(boolean stereo, boolean lowLatency) {
+        return (renderChannels == STEREO_CHANNELS) == stereo && this.lowLatency == lowLatency;
+    }
+
+    AudioDelayEstimator getRenderDelayEstimator() {
+        return renderDelayEstimator;
+    }
+
+    AudioDelayEstimator getCaptureDelayEstimator() {
+        return captureDelayEstimator;
+    }
+
+    OTAudioTelemetry getTelemetry() {
+        return telemetry;
+    }
+
+    private final Runnable renderBusPump = () -> {
+        int samplesToPlay = samplesPerBuffer;
+        try {
+            android.os.Process.setThreadPriority(android.os.Process.THREAD_PRIORITY_AUDIO);
+        } catch (Exception e) {
+            Log.e(TAG, "android.os.Process.setThreadPriority(): " + e.getMessage());
+        }
+
+        while (renderState.get() != STATE_DESTROYED) {
+            if (!isRendering() || renderRing.availableToWrite() < playBuffer.capacity()) {
+                LockSupport.park(this);
+                continue;
+            }
+            playBuffer.clear();
+            int samplesRead = getAudioBus().readRenderData(playBuffer, samplesToPlay);
+            int bytesRead = (samplesRead << 1) * renderChannels;
+            WavFileWriter tap = renderTap;
+            if (tap != null && bytesRead > 0) {
+                recordTap(tap, playBuffer, bytesRead, telemetry.render);
+            }
+            if (bytesRead > 0 && renderRing.write(playBuffer, bytesRead)) {
+                LockSupport.unpark(renderDeviceThread);
+            } else {
+                // Nothing to play yet: do not spin on the audio bus.
+                LockSupport.parkNanos(this, 1000000L);
             }
         }
     };
@@ -1042,7 +1734,7 @@ class OTCustomAudioDriver extends BaseAudioDevice {
         }
 
         if (bluetoothState == BluetoothState.Disconnected) {
-            if (isRendering && (audioState.getLastOutputType() == OutputType.SPEAKER_PHONE)) {
+            if (isRendering() && (audioState.getLastOutputType() == OutputType.SPEAKER_PHONE)) {
                 if (!audioManager.isWiredHeadsetOn()) {
                     Log.d(TAG, "onResume() - Set Speaker Phone ON True");
                     audioManager.setSpeakerphoneOn(true);
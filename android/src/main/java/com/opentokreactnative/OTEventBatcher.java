@@ -0,0 +1,127 @@
+package com.opentokreactnative;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReactContext;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import java.util.ArrayList;
+
+/**
+ * Queues native events and sends them to JS as a single array payload per interval.
+ *
+ * Batching is off until an interval is set. Events sent with emitNow() flush anything
+ * already queued first, so their order relative to batched events is preserved.
+ */
+class OTEventBatcher {
+
+    static final String BATCH_EVENT = "otrn:onBatchedEvents";
+
+    private final ReactContext reactContext;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Object lock = new Object();
+    private final ArrayList<String> eventNames = new ArrayList<>();
+    private final ArrayList<Object> eventPayloads = new ArrayList<>();
+    private volatile int interval = 0;
+    private boolean flushScheduled = false;
+
+    private final Runnable flushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (lock) {
+                flushScheduled = false;
+                flushLocked();
+            }
+        }
+    };
+
+    OTEventBatcher(ReactContext reactContext) {
+
+        this.reactContext = reactContext;
+    }
+
+    void setInterval(int interval) {
+
+        synchronized (lock) {
+            this.interval = Math.max(interval, 0);
+            if (this.interval == 0) {
+                handler.removeCallbacks(flushRunnable);
+                flushScheduled = false;
+                flushLocked();
+            }
+        }
+    }
+
+    boolean isEnabled() {
+
+        return interval > 0;
+    }
+
+    void enqueue(String eventName, @Nullable Object eventData) {
+
+        synchronized (lock) {
+            if (interval == 0) {
+                emit(eventName, eventData);
+                return;
+            }
+            eventNames.add(eventName);
+            eventPayloads.add(eventData);
+            if (!flushScheduled) {
+                flushScheduled = true;
+                handler.postDelayed(flushRunnable, interval);
+            }
+        }
+    }
+
+    void emitNow(String eventName, @Nullable Object eventData) {
+
+        synchronized (lock) {
+            flushLocked();
+            emit(eventName, eventData);
+        }
+    }
+
+    private void flushLocked() {
+
+        int size = eventNames.size();
+        if (size == 0) {
+            return;
+        }
+        WritableArray batch = Arguments.createArray();
+        for (int i = 0; i < size; i++) {
+            WritableMap event = Arguments.createMap();
+            event.putString("eventName", eventNames.get(i));
+            putPayload(event, eventPayloads.get(i));
+            batch.pushMap(event);
+        }
+        eventNames.clear();
+        eventPayloads.clear();
+        reactContext
+                .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit(BATCH_EVENT, batch);
+    }
+
+    private void emit(String eventName, @Nullable Object eventData) {
+
+        reactContext
+                .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit(eventName, eventData);
+    }
+
+    private static void putPayload(WritableMap event, @Nullable Object eventData) {
+
+        if (eventData instanceof WritableMap) {
+            event.putMap("data", (WritableMap) eventData);
+        } else if (eventData instanceof String) {
+            event.putString("data", (String) eventData);
+        } else {
+            event.putNull("data");
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package com.opentokreactnative;
+
+import android.util.Log;
+
+import com.opentok.android.BaseAudioDevice;
+import com.opentokreactnative.utils.AudioDelayEstimator;
+import com.opentokreactnative.utils.PcmConverter;
+import com.opentokreactnative.utils.WavFileReader;
+import com.opentokreactnative.utils.WavFileWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An audio device without audio hardware, for repeatable and headless tests.
+ *
+ * Captured audio is read from a 16-bit PCM WAV file, which is played in a loop (silence when
+ * there is no file). Rendered audio is written to a WAV file, or discarded when there is none.
+ * Each direction runs on its own thread and moves 10 ms blocks on a real-time clock: the next
+ * block is due BLOCK_NS after the previous one, not after the previous one finished, so time
+ * spent in the SDK and in the processing chain does not make the clock drift.
+ *
+ * Telemetry counts each block as one write or read, loopTime is the time spent on each block
+ * and underruns/overruns count the blocks that were more than MAX_LATENESS_NS late, after
+ * which the clock restarts instead of catching up in a burst.
+ */
+class OTFileAudioDevice extends BaseAudioDevice {
+
+    private static final String TAG = OTFileAudioDevice.class.getSimpleName();
+
+    private static final int SAMPLE_SIZE_IN_BYTES = 2;
+    private static final int NUM_CHANNELS_CAPTURING = 1;
+    private static final int NUM_CHANNELS_RENDERING = 2;
+    private static final int DEFAULT_SAMPLE_RATE = 48000;
+    private static final int BLOCKS_PER_SECOND = 100;
+    private static final long BLOCK_NS = 1000000000L / BLOCKS_PER_SECOND;
+    private static final long MAX_LATENESS_NS = 10 * BLOCK_NS;
+    private static final int THREAD_JOIN_TIMEOUT_MS = 1000;
+    private static final int RENDER_BUFFER_SECONDS = 2;
+
+    private final File renderFile;
+    private final AudioSettings captureSettings;
+    private final AudioSettings renderSettings;
+
+    // Mono capture audio in the native order, or null for silence.
+    private final ByteBuffer captureData;
+    private final ByteBuffer captureSource;
+    private int captureOffset = 0;
+    private final ByteBuffer captureBuffer;
+    private final ByteBuffer renderBuffer;
+
+    private volatile boolean capturing = false;
+    private volatile boolean rendering = false;
+    private Thread captureThread;
+    private Thread renderThread;
+    private volatile WavFileWriter renderWriter;
+    private volatile OTAudioProcessingChain captureProcessing;
+
+    private final OTAudioTelemetry telemetry = new OTAudioTelemetry(new AudioDelayEstimator(), new AudioDelayEstimator());
+
+    /**
+     * @param captureFile WAV file to capture from, or null to capture silence.
+     * @param renderFile WAV file to render to, or null to discard rendered audio.
+     */
+    OTFileAudioDevice(File captureFile, File renderFile) throws IOException {
+
+        this.renderFile = renderFile;
+        int captureSampleRate = DEFAULT_SAMPLE_RATE;
+        if (captureFile != null) {
+            WavFileReader reader = new WavFileReader(captureFile);
+            captureSampleRate = reader.getSampleRate();
+            this.captureData = toMono(reader);
+            if (captureData.limit() == 0) {
+                throw new IOException(captureFile + " has no audio data");
+            }
+            this.captureSource = captureData.duplicate();
+        } else {
+            this.captureData = null;
+            this.captureSource = null;
+        }
+        this.captureSettings = new AudioSettings(captureSampleRate, NUM_CHANNELS_CAPTURING);
+        this.renderSettings = new AudioSettings(DEFAULT_SAMPLE_RATE, NUM_CHANNELS_RENDERING);
+        this.captureBuffer = ByteBuffer.allocateDirect(
+                captureSampleRate / BLOCKS_PER_SECOND * SAMPLE_SIZE_IN_BYTES * NUM_CHANNELS_CAPTURING)
+                .order(ByteOrder.nativeOrder());
+        this.renderBuffer = ByteBuffer.allocateDirect(
+                DEFAULT_SAMPLE_RATE / BLOCKS_PER_SECOND * SAMPLE_SIZE_IN_BYTES * NUM_CHANNELS_RENDERING)
+                .order(ByteOrder.nativeOrder());
+        telemetry.render.estimatedDelay = getEstimatedRenderDelay();
+        telemetry.capture.estimatedDelay = getEstimatedCaptureDelay();
+    }
+
+    private static ByteBuffer toMono(WavFileReader reader) {
+
+        ByteBuffer data = reader.getData();
+        if (reader.getChannels() == NUM_CHANNELS_CAPTURING) {
+            return data;
+        }
+        int frames = data.limit() / (SAMPLE_SIZE_IN_BYTES * reader.getChannels());
+        PcmConverter converter = new PcmConverter(reader.getSampleRate(), reader.getChannels(),
+                reader.getSampleRate(), NUM_CHANNELS_CAPTURING);
+        ByteBuffer mono = ByteBuffer.allocateDirect(converter.maxOutputFrames(frames) * SAMPLE_SIZE_IN_BYTES)
+                .order(ByteOrder.nativeOrder());
+        converter.convert(data, frames, mono);
+        return mono;
+    }
+
+    @Override
+    public boolean initCapturer() {
+
+        captureOffset = 0;
+        captureThread = startAudioThread(this::captureLoop, "OTFileCaptureThread");
+        return true;
+    }
+
+    @Override
+    public boolean destroyCapturer() {
+
+        capturing = false;
+        stopAudioThread(captureThread);
+        captureThread = null;
+        return true;
+    }
+
+    @Override
+    public boolean startCapturer() {
+
+        capturing = true;
+        LockSupport.unpark(captureThread);
+        return true;
+    }
+
+    @Override
+    public boolean stopCapturer() {
+
+        capturing = false;
+        return true;
+    }
+
+    @Override
+    public boolean initRenderer() {
+
+        if (renderFile != null) {
+            try {
+                renderWriter = new WavFileWriter(renderFile, renderSettings.getSampleRate(), NUM_CHANNELS_RENDERING,
+                        RENDER_BUFFER_SECONDS * renderSettings.getSampleRate() * SAMPLE_SIZE_IN_BYTES * NUM_CHANNELS_RENDERING);
+            } catch (IOException e) {
+                Log.e(TAG, "initRenderer(): " + e.getMessage());
+                return false;
+            }
+        }
+        renderThread = startAudioThread(this::renderLoop, "OTFileRenderThread");
+        return true;
+    }
+
+    @Override
+    public boolean destroyRenderer() {
+
+        rendering = false;
+        stopAudioThread(renderThread);
+        renderThread = null;
+        if (renderWriter != null) {
+            try {
+                renderWriter.close();
+            } catch (IOException e) {
+                Log.e(TAG, "destroyRenderer(): " + e.getMessage());
+            }
+            renderWriter = null;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean startRenderer() {
+
+        rendering = true;
+        LockSupport.unpark(renderThread);
+        return true;
+    }
+
+    @Override
+    public boolean stopRenderer() {
+
+        rendering = false;
+        return true;
+    }
+
+    @Override
+    public int getEstimatedCaptureDelay() {
+        return (int) (BLOCK_NS / 1000000);
+    }
+
+    @Override
+    public int getEstimatedRenderDelay() {
+        return (int) (BLOCK_NS / 1000000);
+    }
+
+    @Override
+    public AudioSettings getCaptureSettings() {
+        return captureSettings;
+    }
+
+    @Override
+    public AudioSettings getRenderSettings() {
+        return renderSettings;
+    }
+
+    @Override
+    public void onPause() {
+    }
+
+    @Override
+    public void onResume() {
+    }
+
+    @Override
+    public BluetoothState getBluetoothState() {
+        return BluetoothState.Disconnected;
+    }
+
+    /**
+     * @param processing the chain to run on captured audio, or null to send it unprocessed.
+     */
+    void setCaptureProcessing(OTAudioProcessingChain processing) {
+        captureProcessing = processing;
+    }
+
+    OTAudioProcessingChain getCaptureProcessing() {
+        return captureProcessing;
+    }
+
+    OTAudioTelemetry getTelemetry() {
+        return telemetry;
+    }
+
+    // The audio bus, through methods that unit tests override as they run without the SDK.
+    void writeCaptureData(ByteBuffer data, int frames) {
+        getAudioBus().writeCaptureData(data, frames);
+    }
+
+    int readRenderData(ByteBuffer data, int frames) {
+        return getAudioBus().readRenderData(data, frames);
+    }
+
+    private void captureLoop() {
+
+        int frames = captureSettings.getSampleRate() / BLOCKS_PER_SECOND;
+        int length = frames * SAMPLE_SIZE_IN_BYTES * NUM_CHANNELS_CAPTURING;
+        long deadline = System.nanoTime();
+        while (!Thread.currentThread().isInterrupted()) {
+            if (!capturing) {
+                LockSupport.park(this);
+                deadline = System.nanoTime();
+                continue;
+            }
+            long blockStart = System.nanoTime();
+            readCaptureBlock(length);
+            OTAudioProcessingChain processing = captureProcessing;
+            if (processing != null) {
+                processing.process(captureBuffer, frames);
+            }
+            writeCaptureData(captureBuffer, frames);
+            captureBuffer.clear();
+            telemetry.capture.calls++;
+            telemetry.capture.frames += frames;
+            telemetry.capture.callSize.record(frames);
+            telemetry.capture.loopTime.record((System.nanoTime() - blockStart) / 1000);
+            deadline = waitForNextBlock(deadline, telemetry.capture);
+        }
+    }
+
+    private void renderLoop() {
+
+        int frames = renderSettings.getSampleRate() / BLOCKS_PER_SECOND;
+        int bytesPerFrame = SAMPLE_SIZE_IN_BYTES * NUM_CHANNELS_RENDERING;
+        long deadline = System.nanoTime();
+        while (!Thread.currentThread().isInterrupted()) {
+            if (!rendering) {
+                LockSupport.park(this);
+                deadline = System.nanoTime();
+                continue;
+            }
+            long blockStart = System.nanoTime();
+            int framesRead = readRenderData(renderBuffer, frames);
+            WavFileWriter writer = renderWriter;
+            if (writer != null && framesRead > 0) {
+                writer.offer(renderBuffer, framesRead * bytesPerFrame);
+            }
+            renderBuffer.clear();
+            telemetry.render.calls++;
+            if (framesRead < frames) {
+                telemetry.render.shortCalls++;
+            }
+            telemetry.render.frames += framesRead;
+            telemetry.render.callSize.record(framesRead);
+            telemetry.render.loopTime.record((System.nanoTime() - blockStart) / 1000);
+            deadline = waitForNextBlock(deadline, telemetry.render);
+        }
+    }
+
+    /**
+     * Capture thread only. Copies the next block of the capture file into captureBuffer,
+     * wrapping around at the end of the file.
+     */
+    private void readCaptureBlock(int length) {
+
+        captureBuffer.clear();
+        if (captureData == null) {
+            for (int i = 0; i < length; i += SAMPLE_SIZE_IN_BYTES) {
+                captureBuffer.putShort(i, (short) 0);
+            }
+            return;
+        }
+        while (captureBuffer.position() < length) {
+            int chunk = Math.min(length - captureBuffer.position(), captureData.limit() - captureOffset);
+            captureSource.limit(captureOffset + chunk).position(captureOffset);
+            captureBuffer.put(captureSource);
+            captureOffset = (captureOffset + chunk) % captureData.limit();
+        }
+        captureBuffer.clear();
+    }
+
+    /**
+     * Parks until BLOCK_NS after the previous deadline and returns the new deadline. When the
+     * thread is already more than MAX_LATENESS_NS late it counts a glitch and restarts the
+     * clock from now.
+     */
+    private long waitForNextBlock(long deadline, OTAudioTelemetry.Direction direction) {
+
+        long next = deadline + BLOCK_NS;
+        long now = System.nanoTime();
+        if (now - next > MAX_LATENESS_NS) {
+            direction.glitches++;
+            return now;
+        }
+        long waitStart = now;
+        while (next - now > 0 && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(this, next - now);
+            now = System.nanoTime();
+        }
+        direction.waitTime.record((now - waitStart) / 1000);
+        return next;
+    }
+
+    private static Thread startAudioThread(Runnable runnable, String name) {
+
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private static void stopAudioThread(Thread thread) {
+
+        if (thread == null) {
+            return;
+        }
+        thread.interrupt();
+        try {
+            thread.join(THREAD_JOIN_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
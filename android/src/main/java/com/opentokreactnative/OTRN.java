@@ -4,9 +4,12 @@ import android.widget.FrameLayout;
 
 import com.opentok.android.Connection;
 import com.opentok.android.Publisher;
+import com.opentok.android.PublisherKit;
 import com.opentok.android.Session;
 import com.opentok.android.Stream;
 import com.opentok.android.Subscriber;
+import com.opentok.android.SubscriberKit;
+import com.opentokreactnative.utils.StreamDescriptor;
 
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -20,6 +23,7 @@ public class OTRN {
     public static OTRN sharedState;
 
     private ConcurrentHashMap<String, Stream> subscriberStreams = new ConcurrentHashMap<>();
+    private ConcurrentHashMap<String, StreamDescriptor> streamDescriptors = new ConcurrentHashMap<>();
     private ConcurrentHashMap<String, Subscriber> subscribers = new ConcurrentHashMap<>();
     private ConcurrentHashMap<String, Publisher> publishers = new ConcurrentHashMap<>();
     private ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
@@ -31,6 +35,10 @@ public class OTRN {
     private ConcurrentHashMap<String, Callback> sessionConnectCallbacks = new ConcurrentHashMap<>();
     private ConcurrentHashMap<String, Callback> sessionDisconnectCallbacks = new ConcurrentHashMap<>();
     private ConcurrentHashMap<String, Connection> connections = new ConcurrentHashMap<>();
+    // Reverse indexes kept in step with publishers/subscribers so SDK callbacks can
+    // resolve their id without scanning the forward maps.
+    private ConcurrentHashMap<PublisherKit, String> publisherIds = new ConcurrentHashMap<>();
+    private ConcurrentHashMap<SubscriberKit, String> subscriberStreamIds = new ConcurrentHashMap<>();
 
     public static synchronized OTRN getSharedState() {
 
@@ -55,6 +63,11 @@ public class OTRN {
         return this.subscriberStreams;
     }
 
+    public ConcurrentHashMap<String, StreamDescriptor> getStreamDescriptors() {
+
+        return this.streamDescriptors;
+    }
+
     public ConcurrentHashMap<String, Subscriber> getSubscribers() {
 
         return this.subscribers;
@@ -70,6 +83,54 @@ public class OTRN {
         return this.publishers;
     }
 
+    public void putPublisher(String publisherId, Publisher publisher) {
+
+        Publisher previous = this.publishers.put(publisherId, publisher);
+        if (previous != null && previous != publisher) {
+            this.publisherIds.remove(previous, publisherId);
+        }
+        this.publisherIds.put(publisher, publisherId);
+    }
+
+    public Publisher removePublisher(String publisherId) {
+
+        Publisher publisher = this.publishers.remove(publisherId);
+        if (publisher != null) {
+            this.publisherIds.remove(publisher, publisherId);
+        }
+        return publisher;
+    }
+
+    public String getPublisherId(PublisherKit publisherKit) {
+
+        String publisherId = publisherKit != null ? this.publisherIds.get(publisherKit) : null;
+        return publisherId != null ? publisherId : "";
+    }
+
+    public void putSubscriber(String streamId, Subscriber subscriber) {
+
+        Subscriber previous = this.subscribers.put(streamId, subscriber);
+        if (previous != null && previous != subscriber) {
+            this.subscriberStreamIds.remove(previous, streamId);
+        }
+        this.subscriberStreamIds.put(subscriber, streamId);
+    }
+
+    public Subscriber removeSubscriber(String streamId) {
+
+        Subscriber subscriber = this.subscribers.remove(streamId);
+        if (subscriber != null) {
+            this.subscriberStreamIds.remove(subscriber, streamId);
+        }
+        return subscriber;
+    }
+
+    public String getStreamIdBySubscriber(SubscriberKit subscriberKit) {
+
+        String streamId = subscriberKit != null ? this.subscriberStreamIds.get(subscriberKit) : null;
+        return streamId != null ? streamId : "";
+    }
+
     public ConcurrentHashMap<String, FrameLayout> getPublisherViewContainers() {
 
         return this.publisherViewContainers;
@@ -0,0 +1,77 @@
+package com.opentokreactnative;
+
+import android.os.SystemClock;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+import com.opentokreactnative.utils.EventUtils;
+import com.opentokreactnative.utils.Log2Histogram;
+
+/**
+ * Frame counters and per-stage timings, in microseconds, kept by the screen capturer.
+ *
+ * The capturer's handler thread updates the fields for every frame it copies. They are read
+ * when the publisher's video stats arrive, which also closes the window over which the
+ * delivered frame rate is measured.
+ */
+class OTScreenCaptureStats {
+
+    // PixelCopy request to completion, or drawing the view on the UI thread.
+    final Log2Histogram copyTime = new Log2Histogram();
+    // Bitmap.getPixels.
+    final Log2Histogram readbackTime = new Log2Histogram();
+    // Hashing the frame to detect changes.
+    final Log2Histogram compareTime = new Log2Histogram();
+    // ARGB to I420 conversion.
+    final Log2Histogram convertTime = new Log2Histogram();
+    // provideBufferFrame.
+    final Log2Histogram deliverTime = new Log2Histogram();
+    // From the start of the capture to the frame being handed to the SDK.
+    final Log2Histogram latency = new Log2Histogram();
+
+    // Frames copied, sent, and not sent because they had not changed.
+    volatile long framesCaptured = 0;
+    volatile long framesSent = 0;
+    volatile long framesUnchanged = 0;
+    // Capture ticks skipped because the previous frame was still in flight.
+    volatile long framesSkipped = 0;
+    volatile double currentFrameRate = 0;
+
+    private final double targetFrameRate;
+    private long lastReportTime = SystemClock.elapsedRealtime();
+    private long lastReportFrames = 0;
+
+    OTScreenCaptureStats(double targetFrameRate) {
+
+        this.targetFrameRate = targetFrameRate;
+    }
+
+    /**
+     * The effective frame rate is measured since the previous call.
+     */
+    synchronized WritableMap prepareMap() {
+
+        long now = SystemClock.elapsedRealtime();
+        long framesSent = this.framesSent;
+        double effectiveFrameRate = now > lastReportTime
+                ? (framesSent - lastReportFrames) * 1000.0 / (now - lastReportTime) : 0;
+        lastReportTime = now;
+        lastReportFrames = framesSent;
+
+        WritableMap stats = Arguments.createMap();
+        stats.putDouble("targetFrameRate", targetFrameRate);
+        stats.putDouble("captureFrameRate", currentFrameRate);
+        stats.putDouble("effectiveFrameRate", effectiveFrameRate);
+        stats.putDouble("framesCaptured", framesCaptured);
+        stats.putDouble("framesSent", framesSent);
+        stats.putDouble("framesUnchanged", framesUnchanged);
+        stats.putDouble("framesSkipped", framesSkipped);
+        stats.putMap("copyTime", EventUtils.prepareHistogramMap(copyTime));
+        stats.putMap("readbackTime", EventUtils.prepareHistogramMap(readbackTime));
+        stats.putMap("compareTime", EventUtils.prepareHistogramMap(compareTime));
+        stats.putMap("convertTime", EventUtils.prepareHistogramMap(convertTime));
+        stats.putMap("deliverTime", EventUtils.prepareHistogramMap(deliverTime));
+        stats.putMap("latency", EventUtils.prepareHistogramMap(latency));
+        return stats;
+    }
+}
@@ -1,70 +1,352 @@
 package com.opentokreactnative;
 
-import android.content.Context;
-import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.Build;
 import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.PixelCopy;
 import android.view.View;
+import android.view.ViewTreeObserver;
+import android.view.Window;
 
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.uimanager.PixelUtil;
 import com.opentok.android.BaseVideoCapturer;
-
+import com.opentokreactnative.utils.FramePool;
+import com.opentokreactnative.utils.I420Converter;
+import com.opentokreactnative.utils.YuvConverter;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Captures a view for screen sharing.
+ *
+ * The shared area is the whole view, a descendant found by its React tag (viewTag) or a
+ * rectangle of the window (region, in dp). Its bounds in the window are tracked on the UI
+ * thread before each draw pass, so only that area is read back and encoded.
+ *
+ * Frames are scheduled, read back and delivered to the SDK on a capture thread. On Android 8.0+
+ * the window is copied into the frame bitmap asynchronously with PixelCopy; on older versions,
+ * or if PixelCopy fails, the UI thread only draws the view into the bitmap. A new frame is not
+ * started while the previous one is still in flight.
+ *
+ * Each frame is hashed after the read back. While the screen is static, unchanged frames are
+ * only sent at minFrameRate and the capture interval grows towards 1 / minFrameRate; any change
+ * is sent at once and brings the rate back to maxFrameRate.
+ *
+ * Frames are converted to I420 on the capture thread into a reused direct buffer, so the SDK
+ * does not have to convert them from ARGB.
+ *
+ * The time spent in each stage and the frame counters are kept in OTScreenCaptureStats.
+ */
 public class OTScreenCapturer extends BaseVideoCapturer {
 
-    private boolean capturing = false;
-    private View contentView;
+    private static final String TAG = OTScreenCapturer.class.getSimpleName();
 
-    private int fps = 15;
-    private int width = 20;
-    private int height = 20;
-    private int[] frame;
+    // Largest width or height of the frames, from the screenCapture publisher property.
+    static final int DEFAULT_MAX_DIMENSION = 1280;
+    static final double DEFAULT_MAX_FRAME_RATE = 15;
+    static final double DEFAULT_MIN_FRAME_RATE = 1;
+    private static final int FRAME_POOL_SIZE = 2;
+    // Growth of the capture interval per unchanged frame, up to the static interval.
+    private static final double STATIC_INTERVAL_GROWTH = 1.25;
 
-    private Bitmap bmp;
-    private Canvas canvas;
+    private volatile boolean capturing = false;
+    private View contentView;
+    private final Window window;
+    private final int viewTag;
+    // In window pixels, or null when sharing a view or the whole window.
+    private final Rect region;
+    private volatile View targetView;
+    // Area to capture in window pixels, replaced (never modified) by the UI thread.
+    private volatile Rect captureBounds;
+    private final int[] location = new int[2];
 
-    private Handler mHandler = new Handler();
+    private int fps = 15;
+    private volatile int width = 20;
+    private volatile int height = 20;
+    private final int maxDimension;
+    private final long minFrameInterval;
+    private final long maxFrameInterval;
+
+    // Capture thread only.
+    private long frameInterval;
+    private long lastDeliveryTime = 0;
+    private int lastFrameHash = 0;
+    private int lastFrameWidth = 0;
+    private int lastFrameHeight = 0;
+    private final YuvConverter yuvConverter = new I420Converter();
+    private ByteBuffer yuvFrame = ByteBuffer.allocateDirect(0);
+    private final OTScreenCaptureStats stats;
+    private long frameStartTime = 0;
+    // Set by the UI thread or the PixelCopy callback before the frame is delivered.
+    private long frameCopyTime = 0;
+
+    private final FramePool framePool = new FramePool(FRAME_POOL_SIZE);
+    private volatile boolean frameInFlight = false;
+    private volatile boolean pixelCopyFailed = false;
+    private long nextFrameTime = 0;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private HandlerThread captureThread;
+    private volatile Handler captureHandler;
 
     private Runnable newFrame = new Runnable() {
         @Override
         public void run() {
-            if (capturing) {
-                int width = contentView.getWidth();
-                int height = contentView.getHeight();
+            Handler handler = captureHandler;
+            if (!capturing || handler == null) {
+                return;
+            }
+            // Keep a steady rate: the next frame is due one interval after this one was due.
+            long now = SystemClock.uptimeMillis();
+            nextFrameTime = Math.max(nextFrameTime + frameInterval, now);
+            handler.postAtTime(newFrame, nextFrameTime);
+            if (!frameInFlight) {
+                captureFrame(handler);
+            } else {
+                stats.framesSkipped++;
+            }
+        }
+    };
+
+    public OTScreenCapturer(View view) {
+        this(view, null, null);
+    }
 
-                if (frame == null ||
-                        OTScreenCapturer.this.width != width ||
-                        OTScreenCapturer.this.height != height) {
+    /**
+     * @param view the root view of the window.
+     * @param window the window of the view, used by PixelCopy. May be null.
+     * @param options the screenCapture publisher property. maxDimension (0 for the view size)
+     *                limits the frame size; the view is scaled down, keeping its aspect ratio.
+     *                maxFrameRate and minFrameRate bound the adaptive frame rate. viewTag or
+     *                region select the shared area.
+     */
+    public OTScreenCapturer(View view, Window window, ReadableMap options) {
+        this.contentView = view;
+        this.window = window;
+        this.viewTag = options != null && options.hasKey("viewTag") ? options.getInt("viewTag") : 0;
+        ReadableMap region = options != null && options.hasKey("region") ? options.getMap("region") : null;
+        if (region != null && region.hasKey("width") && region.hasKey("height")) {
+            int left = Math.round(PixelUtil.toPixelFromDIP(region.hasKey("x") ? region.getDouble("x") : 0));
+            int top = Math.round(PixelUtil.toPixelFromDIP(region.hasKey("y") ? region.getDouble("y") : 0));
+            this.region = new Rect(left, top,
+                    left + Math.round(PixelUtil.toPixelFromDIP(region.getDouble("width"))),
+                    top + Math.round(PixelUtil.toPixelFromDIP(region.getDouble("height"))));
+        } else {
+            this.region = null;
+        }
+        this.maxDimension = options != null && options.hasKey("maxDimension")
+                ? options.getInt("maxDimension") : DEFAULT_MAX_DIMENSION;
+        double maxFrameRate = options != null && options.hasKey("maxFrameRate")
+                ? options.getDouble("maxFrameRate") : DEFAULT_MAX_FRAME_RATE;
+        double minFrameRate = options != null && options.hasKey("minFrameRate")
+                ? options.getDouble("minFrameRate") : DEFAULT_MIN_FRAME_RATE;
+        maxFrameRate = maxFrameRate > 0 ? maxFrameRate : DEFAULT_MAX_FRAME_RATE;
+        minFrameRate = minFrameRate > 0 ? Math.min(minFrameRate, maxFrameRate) : Math.min(DEFAULT_MIN_FRAME_RATE, maxFrameRate);
+        this.fps = (int) Math.max(1, Math.round(maxFrameRate));
+        this.minFrameInterval = Math.round(1000 / maxFrameRate);
+        this.maxFrameInterval = Math.round(1000 / minFrameRate);
+        this.frameInterval = minFrameInterval;
+        this.stats = new OTScreenCaptureStats(maxFrameRate);
+    }
 
-                    OTScreenCapturer.this.width = width;
-                    OTScreenCapturer.this.height = height;
+    OTScreenCaptureStats getStats() {
+        return stats;
+    }
 
-                    if (bmp != null) {
-                        bmp.recycle();
-                        bmp = null;
-                    }
-                    bmp = Bitmap.createBitmap(width,
-                            height, Bitmap.Config.ARGB_8888);
+    /**
+     * Capture thread only.
+     */
+    private void captureFrame(final Handler handler) {
+        final Rect bounds = captureBounds;
+        if (bounds == null || bounds.isEmpty()) {
+            return;
+        }
+        int viewWidth = bounds.width();
+        int viewHeight = bounds.height();
+        float scale = 1;
+        if (maxDimension > 0 && Math.max(viewWidth, viewHeight) > maxDimension) {
+            scale = (float) maxDimension / Math.max(viewWidth, viewHeight);
+        }
+        int width = Math.max(1, Math.round(viewWidth * scale));
+        int height = Math.max(1, Math.round(viewHeight * scale));
 
-                    canvas = new Canvas(bmp);
-                    frame = new int[width * height];
-                }
-                canvas.save();
-                canvas.translate(-contentView.getScrollX(), - contentView.getScrollY());
-                contentView.draw(canvas);
+        final FramePool.Frame frame = framePool.acquire(width, height);
+        if (frame == null) {
+            stats.framesSkipped++;
+            return;
+        }
+        frameInFlight = true;
+        frameStartTime = System.nanoTime();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && window != null && !pixelCopyFailed) {
+            try {
+                PixelCopy.request(window, bounds, frame.getBitmap(), result -> {
+                    if (result == PixelCopy.SUCCESS) {
+                        frameCopyTime = System.nanoTime() - frameStartTime;
+                        deliverFrame(frame);
+                    } else {
+                        Log.i(TAG, "PixelCopy failed (" + result + "), drawing the view instead");
+                        pixelCopyFailed = true;
+                        finishFrame(frame);
+                    }
+                }, handler);
+                return;
+            } catch (IllegalArgumentException e) {
+                // The window has no surface yet, or is not hardware accelerated.
+                Log.i(TAG, "PixelCopy unavailable, drawing the view instead: " + e.getMessage());
+                pixelCopyFailed = true;
+            }
+        }
+        final float drawScale = scale;
+        mainHandler.post(() -> {
+            if (!capturing) {
+                finishFrame(frame);
+                return;
+            }
+            // Views outside the bitmap are clipped, so only the shared area is drawn.
+            long drawStart = System.nanoTime();
+            Canvas canvas = frame.getCanvas();
+            canvas.save();
+            canvas.scale(drawScale, drawScale);
+            canvas.translate(-bounds.left - contentView.getScrollX(), -bounds.top - contentView.getScrollY());
+            contentView.draw(canvas);
+            canvas.restore();
+            frameCopyTime = System.nanoTime() - drawStart;
+            handler.post(() -> deliverFrame(frame));
+        });
+    }
 
-                bmp.getPixels(frame, 0, width, 0, 0, width, height);
+    private final ViewTreeObserver.OnPreDrawListener boundsTracker = () -> {
+        updateCaptureBounds();
+        return true;
+    };
 
-                provideIntArrayFrame(frame, ARGB, width, height, 0, false);
+    /**
+     * UI thread only. Finds the target view and starts tracking the captured area.
+     */
+    private void attachToView() {
+        if (viewTag > 0) {
+            targetView = contentView.findViewById(viewTag);
+            if (targetView == null) {
+                Log.i(TAG, "View " + viewTag + " not found, sharing the whole window");
+            }
+        }
+        updateCaptureBounds();
+        contentView.getViewTreeObserver().removeOnPreDrawListener(boundsTracker);
+        contentView.getViewTreeObserver().addOnPreDrawListener(boundsTracker);
+    }
 
-                canvas.restore();
+    private void detachFromView() {
+        contentView.getViewTreeObserver().removeOnPreDrawListener(boundsTracker);
+        targetView = null;
+        captureBounds = null;
+    }
 
-                mHandler.postDelayed(newFrame, 1000 / fps);
+    /**
+     * UI thread only. The bounds are clipped to the window and only replaced when they change.
+     */
+    private void updateCaptureBounds() {
+        View target = targetView;
+        int left = 0;
+        int top = 0;
+        int right = contentView.getWidth();
+        int bottom = contentView.getHeight();
+        if (target != null) {
+            target.getLocationInWindow(location);
+            left = location[0];
+            top = location[1];
+            right = left + target.getWidth();
+            bottom = top + target.getHeight();
+        } else if (region != null) {
+            left = region.left;
+            top = region.top;
+            right = region.right;
+            bottom = region.bottom;
+        }
+        left = Math.max(left, 0);
+        top = Math.max(top, 0);
+        right = Math.min(right, contentView.getWidth());
+        bottom = Math.min(bottom, contentView.getHeight());
+        Rect bounds = captureBounds;
+        if (bounds == null || bounds.left != left || bounds.top != top
+                || bounds.right != right || bounds.bottom != bottom) {
+            captureBounds = new Rect(left, top, right, bottom);
+        }
+    }
 
+    /**
+     * Capture thread only. Reads back the frame and hands it to the SDK.
+     */
+    private void deliverFrame(FramePool.Frame frame) {
+        if (capturing) {
+            int width = frame.getWidth();
+            int height = frame.getHeight();
+            int[] pixels = frame.getPixels();
+            stats.framesCaptured++;
+            stats.copyTime.record(frameCopyTime / 1000);
+            long stageStart = System.nanoTime();
+            frame.getBitmap().getPixels(pixels, 0, width, 0, 0, width, height);
+            long stageEnd = System.nanoTime();
+            stats.readbackTime.record((stageEnd - stageStart) / 1000);
+
+            stageStart = stageEnd;
+            int hash = hashPixels(pixels, width * height);
+            stageEnd = System.nanoTime();
+            stats.compareTime.record((stageEnd - stageStart) / 1000);
+            boolean changed = hash != lastFrameHash || width != lastFrameWidth || height != lastFrameHeight;
+            long now = SystemClock.uptimeMillis();
+            if (changed) {
+                frameInterval = minFrameInterval;
+            } else {
+                frameInterval = Math.min(maxFrameInterval, Math.round(frameInterval * STATIC_INTERVAL_GROWTH));
+            }
+            stats.currentFrameRate = 1000.0 / frameInterval;
+            // Unchanged frames are still repeated at minFrameRate, so the stream does not stall.
+            if (changed || now - lastDeliveryTime >= maxFrameInterval) {
+                lastFrameHash = hash;
+                lastFrameWidth = width;
+                lastFrameHeight = height;
+                lastDeliveryTime = now;
+                this.width = width;
+                this.height = height;
+                int frameSize = yuvConverter.frameSize(width, height);
+                if (yuvFrame.capacity() < frameSize) {
+                    yuvFrame = ByteBuffer.allocateDirect(frameSize);
+                }
+                stageStart = System.nanoTime();
+                yuvConverter.convert(pixels, width, width, height, yuvFrame);
+                stageEnd = System.nanoTime();
+                stats.convertTime.record((stageEnd - stageStart) / 1000);
+
+                stageStart = stageEnd;
+                provideBufferFrame(yuvFrame, I420, width, height, 0, false);
+                stageEnd = System.nanoTime();
+                stats.deliverTime.record((stageEnd - stageStart) / 1000);
+                stats.latency.record((stageEnd - frameStartTime) / 1000);
+                stats.framesSent++;
+            } else {
+                stats.framesUnchanged++;
             }
         }
-    };
+        finishFrame(frame);
+    }
 
-    public OTScreenCapturer(View view) {
-        this.contentView = view;
+    private static int hashPixels(int[] pixels, int length) {
+        int hash = 1;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + pixels[i];
+        }
+        return hash;
+    }
+
+    private void finishFrame(FramePool.Frame frame) {
+        framePool.release(frame);
+        frameInFlight = false;
     }
 
     @Override
@@ -73,17 +355,31 @@ public class OTScreenCapturer extends BaseVideoCapturer {
     }
 
     @Override
-    public int startCapture() {
+    public synchronized int startCapture() {
+        if (captureThread == null) {
+            captureThread = new HandlerThread("OTScreenCapturer");
+            captureThread.start();
+            captureHandler = new Handler(captureThread.getLooper());
+        }
         capturing = true;
-
-        mHandler.postDelayed(newFrame, 1000 / fps);
+        mainHandler.post(this::attachToView);
+        captureHandler.post(() -> {
+            // Send the first frame after a restart even if the screen did not change.
+            frameInterval = minFrameInterval;
+            lastFrameWidth = 0;
+        });
+        nextFrameTime = SystemClock.uptimeMillis() + minFrameInterval;
+        captureHandler.postAtTime(newFrame, nextFrameTime);
         return 0;
     }
 
     @Override
-    public int stopCapture() {
+    public synchronized int stopCapture() {
         capturing = false;
-        mHandler.removeCallbacks(newFrame);
+        mainHandler.post(this::detachFromView);
+        if (captureHandler != null) {
+            captureHandler.removeCallbacks(newFrame);
+        }
         return 0;
     }
 
@@ -99,13 +395,24 @@ public class OTScreenCapturer extends BaseVideoCapturer {
         settings.fps = fps;
         settings.width = width;
         settings.height = height;
-        settings.format = ARGB;
+        settings.format = I420;
         return settings;
     }
 
     @Override
-    public void destroy() {
-
+    public synchronized void destroy() {
+        stopCapture();
+        if (captureThread != null) {
+            // Frames already queued on the capture thread finish before it quits.
+            captureHandler.post(() -> {
+                framePool.clear();
+                Looper.myLooper().quit();
+            });
+            captureThread = null;
+            captureHandler = null;
+        } else {
+            framePool.clear();
+        }
     }
 
     @Override
@@ -118,4 +425,4 @@ public class OTScreenCapturer extends BaseVideoCapturer {
 
     }
 
-}
\ No newline at end of file
+}
@@ -4,9 +4,12 @@ package com.opentokreactnative;
  * Created by manik on 1/29/18.
  */
 
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.widget.FrameLayout;
 import android.view.View;
+import android.view.Window;
 
 import androidx.annotation.Nullable;
 
@@ -35,17 +38,26 @@ import com.opentok.android.Session.Builder.TransportPolicy;
 import com.opentok.android.Session.Builder.IncludeServers;
 import com.opentok.android.Session.Builder.IceServer;
 import com.opentok.android.AudioDeviceManager;
+import com.opentok.android.BaseAudioDevice;
+import com.opentokreactnative.utils.EventNameTable;
+import com.opentokreactnative.utils.EventSubscriptions;
 import com.opentokreactnative.utils.EventUtils;
 import com.opentokreactnative.utils.Utils;
+import com.opentokreactnative.utils.WavFileWriter;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.ArrayList;
 
 public class OTSessionManager extends ReactContextBaseJavaModule
         implements Session.SessionListener,
         PublisherKit.PublisherListener,
         PublisherKit.AudioLevelListener,
+        PublisherKit.AudioStatsListener,
+        PublisherKit.VideoStatsListener,
         SubscriberKit.SubscriberListener,
         Session.SignalListener,
         Session.ConnectionListener,
@@ -56,22 +68,35 @@ public class OTSessionManager extends ReactContextBaseJavaModule
         SubscriberKit.AudioStatsListener,
         SubscriberKit.VideoStatsListener,
         SubscriberKit.VideoListener,
-        SubscriberKit.StreamListener{
+        SubscriberKit.StreamListener,
+        OTCustomAudioDriver.AudioErrorListener{
 
     private ConcurrentHashMap<String, Integer> connectionStatusMap = new ConcurrentHashMap<>();
-    private ArrayList<String> jsEvents = new ArrayList<String>();
-    private ArrayList<String> componentEvents = new ArrayList<String>();
+    private ConcurrentHashMap<String, OTActiveSpeakerDetector> activeSpeakerDetectors = new ConcurrentHashMap<>();
+    private final EventSubscriptions jsEvents = new EventSubscriptions();
+    private final EventSubscriptions componentEvents = new EventSubscriptions();
     private static final String TAG = "OTRN";
+    private static final String AUDIO_RECORDING_DIRECTORY = "otrn-audio";
     private final String sessionPreface = "session:";
     private final String publisherPreface = "publisher:";
     private final String subscriberPreface = "subscriber:";
+    private final EventNameTable eventNames = new EventNameTable(sessionPreface, publisherPreface);
     private Boolean logLevel = false;
     public OTRN sharedState;
+    private final OTEventBatcher eventBatcher;
+    private final OTAudioLevelCoalescer audioLevelCoalescer;
+    private final OTStatsAggregator statsAggregator = new OTStatsAggregator();
+    private volatile int statsSummaryInterval = 0;
+    private final Handler audioTelemetryHandler = new Handler(Looper.getMainLooper());
+    private final ConcurrentHashMap<String, Runnable> audioTelemetryTasks = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, OTAudioProcessingChain> audioProcessingChains = new ConcurrentHashMap<>();
 
     public OTSessionManager(ReactApplicationContext reactContext) {
 
         super(reactContext);
         sharedState = OTRN.getSharedState();
+        eventBatcher = new OTEventBatcher(reactContext);
+        audioLevelCoalescer = new OTAudioLevelCoalescer(reactContext);
     }
 
     @ReactMethod
@@ -81,9 +106,27 @@ public class OTSessionManager extends ReactContextBaseJavaModule
         final boolean connectionEventsSuppressed = sessionOptions.getBoolean("connectionEventsSuppressed");
         final boolean ipWhitelist = sessionOptions.getBoolean("ipWhitelist");
         final boolean enableStereoOutput = sessionOptions.getBoolean("enableStereoOutput");
-        if (enableStereoOutput) {
-            OTCustomAudioDriver otCustomAudioDriver = new OTCustomAudioDriver(this.getReactApplicationContext());
-            AudioDeviceManager.setAudioDevice(otCustomAudioDriver);
+        final boolean lowLatencyAudio = sessionOptions.hasKey("lowLatencyAudio") && sessionOptions.getBoolean("lowLatencyAudio");
+        // The batcher, the coalescer and the stats summary interval are shared by every session,
+        // so each initSession resets them.
+        final int eventBatchInterval = sessionOptions.hasKey("eventBatchInterval") ? sessionOptions.getInt("eventBatchInterval") : 0;
+        eventBatcher.setInterval(eventBatchInterval);
+        final int audioLevelRate = sessionOptions.hasKey("audioLevelRate") ? sessionOptions.getInt("audioLevelRate") : 0;
+        audioLevelCoalescer.setRate(audioLevelRate);
+        statsSummaryInterval = sessionOptions.hasKey("statsSummaryInterval") ? sessionOptions.getInt("statsSummaryInterval") : 0;
+        final ReadableMap fileAudioDevice = sessionOptions.hasKey("fileAudioDevice") ? sessionOptions.getMap("fileAudioDevice") : null;
+        String fileAudioDeviceError = null;
+        if (fileAudioDevice != null && (fileAudioDevice.hasKey("captureFile") || fileAudioDevice.hasKey("renderFile"))) {
+            fileAudioDeviceError = setUpFileAudioDevice(fileAudioDevice);
+        } else if (enableStereoOutput || lowLatencyAudio) {
+            // Reuse the driver of an earlier session rather than leaving it and its threads behind.
+            BaseAudioDevice currentDevice = AudioDeviceManager.getAudioDevice();
+            if (!(currentDevice instanceof OTCustomAudioDriver)
+                    || !((OTCustomAudioDriver) currentDevice).hasOptions(enableStereoOutput, lowLatencyAudio)) {
+                OTCustomAudioDriver otCustomAudioDriver = new OTCustomAudioDriver(this.getReactApplicationContext(), enableStereoOutput, lowLatencyAudio);
+                otCustomAudioDriver.setAudioErrorListener(this);
+                AudioDeviceManager.setAudioDevice(otCustomAudioDriver);
+            }
         }
         final List<IceServer> iceServersList = Utils.sanitizeIceServer(sessionOptions.getArray("customServers"));
         final IncludeServers includeServers = Utils.sanitizeIncludeServer(sessionOptions.getString("includeServers"));
@@ -115,6 +158,25 @@ public class OTSessionManager extends ReactContextBaseJavaModule
         mSession.setReconnectionListener(this);
         mSession.setArchiveListener(this);
         mSession.setStreamPropertiesListener(this);
+        eventNames.registerSession(sessionId);
+        if (fileAudioDeviceError != null) {
+            WritableMap errorInfo = EventUtils.createError(fileAudioDeviceError);
+            errorInfo.putString("sessionId", sessionId);
+            errorInfo.putString("direction", OTCustomAudioDriver.DIRECTION_CAPTURE);
+            errorInfo.putString("status", OTCustomAudioDriver.STATUS_FAILED);
+            errorInfo.putInt("attempt", 0);
+            sendUrgentEventMap(this.getReactApplicationContext(), eventNames.sessionEvent(sessionId, EventNameTable.SESSION_ON_AUDIO_DEVICE_ERROR), errorInfo);
+        }
+        ReadableMap activeSpeakerOptions = sessionOptions.hasKey("activeSpeakerDetection") ? sessionOptions.getMap("activeSpeakerDetection") : null;
+        if (activeSpeakerOptions != null && activeSpeakerOptions.hasKey("enabled") && activeSpeakerOptions.getBoolean("enabled")) {
+            activeSpeakerDetectors.put(sessionId, new OTActiveSpeakerDetector(sessionId, activeSpeakerOptions));
+        } else {
+            activeSpeakerDetectors.remove(sessionId);
+        }
+        final int audioTelemetryInterval = sessionOptions.hasKey("audioTelemetryInterval") ? sessionOptions.getInt("audioTelemetryInterval") : 0;
+        if (audioTelemetryInterval > 0) {
+            scheduleAudioTelemetry(sessionId, audioTelemetryInterval);
+        }
         mSessions.put(sessionId, mSession);
         mAndroidOnTopMap.put(sessionId, androidOnTop);
         mAndroidZOrderMap.put(sessionId, androidZOrder);
@@ -149,10 +211,20 @@ public class OTSessionManager extends ReactContextBaseJavaModule
         Boolean publishAudio = properties.getBoolean("publishAudio");
         Boolean publishVideo = properties.getBoolean("publishVideo");
         String videoSource = properties.getString("videoSource");
+        ReadableMap audioProcessing = properties.hasKey("audioProcessing") ? properties.getMap("audioProcessing") : null;
+        if (audioProcessing != null && OTAudioProcessingChain.hasStages(audioProcessing)) {
+            String audioProcessingError = checkAudioProcessing();
+            if (audioProcessingError != null) {
+                callback.invoke(EventUtils.createError(audioProcessingError));
+                return;
+            }
+        }
         Publisher mPublisher = null;
         if (videoSource.equals("screen")) {
-            View view = getCurrentActivity().getWindow().getDecorView().getRootView();
-            OTScreenCapturer capturer = new OTScreenCapturer(view);
+            Window window = getCurrentActivity().getWindow();
+            View view = window.getDecorView().getRootView();
+            OTScreenCapturer capturer = new OTScreenCapturer(view, window,
+                    properties.hasKey("screenCapture") ? properties.getMap("screenCapture") : null);
             mPublisher = new Publisher.Builder(this.getReactApplicationContext())
                     .audioTrack(audioTrack)
                     .videoTrack(videoTrack)
@@ -182,11 +254,16 @@ public class OTSessionManager extends ReactContextBaseJavaModule
         }
         mPublisher.setPublisherListener(this);
         mPublisher.setAudioLevelListener(this);
+        mPublisher.setAudioStatsListener(this);
+        mPublisher.setVideoStatsListener(this);
         mPublisher.setAudioFallbackEnabled(audioFallbackEnabled);
         mPublisher.setPublishVideo(publishVideo);
         mPublisher.setPublishAudio(publishAudio);
-        ConcurrentHashMap<String, Publisher> mPublishers = sharedState.getPublishers();
-        mPublishers.put(publisherId, mPublisher);
+        eventNames.registerPublisher(publisherId);
+        if (audioProcessing != null) {
+            setUpAudioProcessing(publisherId, audioProcessing);
+        }
+        sharedState.putPublisher(publisherId, mPublisher);
         callback.invoke();
     }
 
@@ -214,7 +291,6 @@ public class OTSessionManager extends ReactContextBaseJavaModule
     public void subscribeToStream(String streamId, String sessionId, ReadableMap properties, Callback callback) {
 
         ConcurrentHashMap<String, Stream> mSubscriberStreams = sharedState.getSubscriberStreams();
-        ConcurrentHashMap<String, Subscriber> mSubscribers = sharedState.getSubscribers();
         ConcurrentHashMap<String, Session> mSessions = sharedState.getSessions();
         Stream stream = mSubscriberStreams.get(streamId);
         Session mSession = mSessions.get(sessionId);
@@ -239,7 +315,7 @@ public class OTSessionManager extends ReactContextBaseJavaModule
                     preferredResolution.getInt("height"));
             mSubscriber.setPreferredResolution(resolution);
         }
-        mSubscribers.put(streamId, mSubscriber);
+        sharedState.putSubscriber(streamId, mSubscriber);
         if (mSession != null) {
             mSession.subscribe(mSubscriber);
             callback.invoke(null, streamId);
@@ -258,17 +334,19 @@ public class OTSessionManager extends ReactContextBaseJavaModule
 
                 String mStreamId = streamId;
                 Callback mCallback = callback;
-                ConcurrentHashMap<String, Subscriber> mSubscribers = sharedState.getSubscribers();
                 ConcurrentHashMap<String, Stream> mSubscriberStreams = sharedState.getSubscriberStreams();
                 ConcurrentHashMap<String, FrameLayout> mSubscriberViewContainers = sharedState.getSubscriberViewContainers();
-                Subscriber mSubscriber = mSubscribers.get(mStreamId);
                 FrameLayout mSubscriberViewContainer = mSubscriberViewContainers.get(mStreamId);
                 if (mSubscriberViewContainer != null) {
                     mSubscriberViewContainer.removeAllViews();
                 }
                 mSubscriberViewContainers.remove(mStreamId);
-                mSubscribers.remove(mStreamId);
+                sharedState.removeSubscriber(mStreamId);
+                audioLevelCoalescer.remove(mStreamId);
+                removeFromActiveSpeakers(mStreamId);
+                statsAggregator.remove(mStreamId);
                 mSubscriberStreams.remove(mStreamId);
+                sharedState.getStreamDescriptors().remove(mStreamId);
                 mCallback.invoke();
 
             }
@@ -470,7 +548,12 @@ public class OTSessionManager extends ReactContextBaseJavaModule
                 if (mPublisher != null) {
                     mPublisher.getCapturer().stopCapture();
                 }
-                mPublishers.remove(publisherId);
+                sharedState.removePublisher(publisherId);
+                eventNames.unregisterPublisher(publisherId);
+                audioLevelCoalescer.remove(publisherId);
+                removeFromActiveSpeakers(publisherId);
+                statsAggregator.removePublisher(publisherId);
+                removeAudioProcessing(publisherId);
             }
         });
     }
@@ -488,6 +571,116 @@ public class OTSessionManager extends ReactContextBaseJavaModule
         callback.invoke(sessionInfo);
     }
 
+    @ReactMethod
+    public void getStreamStats(String streamId, Callback callback) {
+
+        callback.invoke(statsAggregator.prepareSummary(streamId));
+    }
+
+    @ReactMethod
+    public void getAudioDelayMetrics(Callback callback) {
+
+        BaseAudioDevice audioDevice = AudioDeviceManager.getAudioDevice();
+        if (!(audioDevice instanceof OTCustomAudioDriver)) {
+            callback.invoke((Object) null);
+            return;
+        }
+        OTCustomAudioDriver audioDriver = (OTCustomAudioDriver) audioDevice;
+        WritableMap delayMetrics = Arguments.createMap();
+        delayMetrics.putMap("render", EventUtils.prepareAudioDelayMap(audioDriver.getRenderDelayEstimator()));
+        delayMetrics.putMap("capture", EventUtils.prepareAudioDelayMap(audioDriver.getCaptureDelayEstimator()));
+        callback.invoke(delayMetrics);
+    }
+
+    @ReactMethod
+    public void getAudioTelemetry(Callback callback) {
+
+        OTAudioTelemetry telemetry = getAudioDeviceTelemetry(AudioDeviceManager.getAudioDevice());
+        if (telemetry == null) {
+            callback.invoke((Object) null);
+            return;
+        }
+        callback.invoke(telemetry.prepareMap());
+    }
+
+    @ReactMethod
+    public void startAudioRecording(String name, Callback callback) {
+
+        BaseAudioDevice audioDevice = AudioDeviceManager.getAudioDevice();
+        if (!(audioDevice instanceof OTCustomAudioDriver)) {
+            callback.invoke(EventUtils.createError("Error starting audio recording. The custom audio driver is not in use."));
+            return;
+        }
+        String fileName = (name == null || name.isEmpty() ? "otrn-" + System.currentTimeMillis() : name)
+                .replaceAll("[^A-Za-z0-9._-]", "_");
+        File directory = new File(getReactApplicationContext().getFilesDir(), AUDIO_RECORDING_DIRECTORY);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            callback.invoke(EventUtils.createError("Error starting audio recording. Could not create " + directory));
+            return;
+        }
+        File captureFile = new File(directory, fileName + "-capture.wav");
+        File renderFile = new File(directory, fileName + "-render.wav");
+        try {
+            ((OTCustomAudioDriver) audioDevice).startRecording(captureFile, renderFile);
+        } catch (IOException e) {
+            callback.invoke(EventUtils.createError("Error starting audio recording. " + e.getMessage()));
+            return;
+        }
+        WritableMap recordingInfo = Arguments.createMap();
+        recordingInfo.putString("capturePath", captureFile.getAbsolutePath());
+        recordingInfo.putString("renderPath", renderFile.getAbsolutePath());
+        callback.invoke(null, recordingInfo);
+    }
+
+    @ReactMethod
+    public void stopAudioRecording(Callback callback) {
+
+        BaseAudioDevice audioDevice = AudioDeviceManager.getAudioDevice();
+        if (!(audioDevice instanceof OTCustomAudioDriver)) {
+            callback.invoke(EventUtils.createError("Error stopping audio recording. The custom audio driver is not in use."));
+            return;
+        }
+        WavFileWriter[] writers;
+        try {
+            writers = ((OTCustomAudioDriver) audioDevice).stopRecording();
+        } catch (IOException e) {
+            callback.invoke(EventUtils.createError("Error stopping audio recording. " + e.getMessage()));
+            return;
+        }
+        if (writers == null) {
+            callback.invoke(EventUtils.createError("Error stopping audio recording. No recording in progress."));
+            return;
+        }
+        WritableMap recordingInfo = Arguments.createMap();
+        recordingInfo.putString("capturePath", writers[0].getFile().getAbsolutePath());
+        recordingInfo.putString("renderPath", writers[1].getFile().getAbsolutePath());
+        recordingInfo.putDouble("captureBytes", writers[0].getBytesWritten());
+        recordingInfo.putDouble("renderBytes", writers[1].getBytesWritten());
+        recordingInfo.putDouble("captureBytesDropped", writers[0].getBytesDropped());
+        recordingInfo.putDouble("renderBytesDropped", writers[1].getBytesDropped());
+        callback.invoke(null, recordingInfo);
+    }
+
+    @ReactMethod
+    public void getSessionQualitySnapshot(String sessionId, Callback callback) {
+
+        List<String> streamIds = new ArrayList<>();
+        for (Map.Entry<String, Subscriber> entry : sharedState.getSubscribers().entrySet()) {
+            Session mSession = entry.getValue().getSession();
+            if (mSession != null && sessionId.equals(mSession.getSessionId())) {
+                streamIds.add(entry.getKey());
+            }
+        }
+        List<String> publisherIds = new ArrayList<>();
+        for (Map.Entry<String, Publisher> entry : sharedState.getPublishers().entrySet()) {
+            Session mSession = entry.getValue().getSession();
+            if (mSession != null && sessionId.equals(mSession.getSessionId())) {
+                publisherIds.add(entry.getKey());
+            }
+        }
+        callback.invoke(statsAggregator.prepareQualitySnapshot(sessionId, streamIds, publisherIds));
+    }
+
     @ReactMethod
     public void enableLogs(Boolean logLevel) {
         setLogLevel(logLevel);
@@ -497,21 +690,249 @@ public class OTSessionManager extends ReactContextBaseJavaModule
         this.logLevel = logLevel;
     }
 
+    private boolean hasListeners(String eventName) {
+
+        return jsEvents.contains(eventName) || componentEvents.contains(eventName);
+    }
+
     private void sendEventMap(ReactContext reactContext, String eventName, @Nullable WritableMap eventData) {
 
-        if (Utils.contains(jsEvents, eventName) || Utils.contains(componentEvents, eventName)) {
-            reactContext
-                    .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
-                    .emit(eventName, eventData);
+        if (hasListeners(eventName)) {
+            if (eventBatcher.isEnabled()) {
+                eventBatcher.enqueue(eventName, eventData);
+            } else {
+                reactContext
+                        .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                        .emit(eventName, eventData);
+            }
+        }
+    }
+
+    private void sendUrgentEventMap(ReactContext reactContext, String eventName, @Nullable WritableMap eventData) {
+
+        if (hasListeners(eventName)) {
+            if (eventBatcher.isEnabled()) {
+                eventBatcher.emitNow(eventName, eventData);
+            } else {
+                reactContext
+                        .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                        .emit(eventName, eventData);
+            }
         }
     }
 
     private void sendEventWithString(ReactContext reactContext, String eventName, String eventString) {
 
-        if (Utils.contains(jsEvents, eventName) || Utils.contains(componentEvents, eventName)) {
-            reactContext
-                    .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
-                    .emit(eventName, eventString);
+        if (hasListeners(eventName)) {
+            if (eventBatcher.isEnabled()) {
+                eventBatcher.enqueue(eventName, eventString);
+            } else {
+                reactContext
+                        .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                        .emit(eventName, eventString);
+            }
+        }
+    }
+
+    private void updateActiveSpeaker(Session session, String id, boolean publisher, float audioLevel) {
+
+        if (session == null || activeSpeakerDetectors.isEmpty()) {
+            return;
+        }
+        OTActiveSpeakerDetector detector = activeSpeakerDetectors.get(session.getSessionId());
+        if (detector != null && detector.update(id, publisher, audioLevel)) {
+            String event = eventNames.sessionEvent(session.getSessionId(), EventNameTable.SESSION_ON_ACTIVE_SPEAKER_CHANGED);
+            sendEventMap(this.getReactApplicationContext(), event, detector.snapshot());
+        }
+    }
+
+    private void sendStatsSummary(SubscriberKit subscriber, String streamId) {
+
+        String event = subscriberPreface + "onStatsSummary";
+        if (statsSummaryInterval > 0
+                && hasListeners(event)
+                && statsAggregator.shouldSendSummary(streamId, statsSummaryInterval)) {
+            WritableMap subscriberInfo = Arguments.createMap();
+            Stream mStream = sharedState.getSubscriberStreams().get(streamId);
+            if (mStream != null) {
+                subscriberInfo.putMap("stream", EventUtils.prepareCachedJSStreamMap(mStream, subscriber.getSession()));
+            }
+            subscriberInfo.putMap("stats", statsAggregator.prepareSummary(streamId));
+            sendEventMap(this.getReactApplicationContext(), event, subscriberInfo);
+        }
+    }
+
+    private void scheduleAudioTelemetry(final String sessionId, final int interval) {
+
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                if (audioTelemetryTasks.get(sessionId) != this) {
+                    return;
+                }
+                String event = eventNames.sessionEvent(sessionId, EventNameTable.SESSION_ON_AUDIO_TELEMETRY);
+                OTAudioTelemetry audioTelemetry = getAudioDeviceTelemetry(AudioDeviceManager.getAudioDevice());
+                if (audioTelemetry != null && hasListeners(event)) {
+                    WritableMap telemetry = audioTelemetry.prepareMap();
+                    telemetry.putString("sessionId", sessionId);
+                    sendEventMap(getReactApplicationContext(), event, telemetry);
+                }
+                audioTelemetryHandler.postDelayed(this, interval);
+            }
+        };
+        Runnable previousTask = audioTelemetryTasks.put(sessionId, task);
+        if (previousTask != null) {
+            audioTelemetryHandler.removeCallbacks(previousTask);
+        }
+        audioTelemetryHandler.postDelayed(task, interval);
+    }
+
+    /**
+     * Replaces the audio hardware with WAV files. Without a valid capture file the current
+     * audio device is kept.
+     *
+     * @return the error message when the capture file cannot be read, otherwise null.
+     */
+    private String setUpFileAudioDevice(ReadableMap options) {
+
+        String captureFile = options.hasKey("captureFile") ? options.getString("captureFile") : null;
+        String renderFile = options.hasKey("renderFile") ? options.getString("renderFile") : null;
+        try {
+            AudioDeviceManager.setAudioDevice(new OTFileAudioDevice(
+                    captureFile == null || captureFile.isEmpty() ? null : new File(captureFile),
+                    renderFile == null || renderFile.isEmpty() ? null : new File(renderFile)));
+            return null;
+        } catch (IOException e) {
+            Log.e(TAG, "Error setting up the file audio device. " + e.getMessage());
+            return "Error setting up the file audio device. " + e.getMessage();
+        }
+    }
+
+    private static OTAudioTelemetry getAudioDeviceTelemetry(BaseAudioDevice audioDevice) {
+
+        if (audioDevice instanceof OTCustomAudioDriver) {
+            return ((OTCustomAudioDriver) audioDevice).getTelemetry();
+        }
+        if (audioDevice instanceof OTFileAudioDevice) {
+            return ((OTFileAudioDevice) audioDevice).getTelemetry();
+        }
+        return null;
+    }
+
+    private static boolean supportsCaptureProcessing(BaseAudioDevice audioDevice) {
+        return audioDevice instanceof OTCustomAudioDriver || audioDevice instanceof OTFileAudioDevice;
+    }
+
+    private static OTAudioProcessingChain getCaptureProcessing(BaseAudioDevice audioDevice) {
+
+        if (audioDevice instanceof OTCustomAudioDriver) {
+            return ((OTCustomAudioDriver) audioDevice).getCaptureProcessing();
+        }
+        if (audioDevice instanceof OTFileAudioDevice) {
+            return ((OTFileAudioDevice) audioDevice).getCaptureProcessing();
+        }
+        return null;
+    }
+
+    private static void setCaptureProcessing(BaseAudioDevice audioDevice, OTAudioProcessingChain chain) {
+
+        if (audioDevice instanceof OTCustomAudioDriver) {
+            ((OTCustomAudioDriver) audioDevice).setCaptureProcessing(chain);
+        } else if (audioDevice instanceof OTFileAudioDevice) {
+            ((OTFileAudioDevice) audioDevice).setCaptureProcessing(chain);
+        }
+    }
+
+    /**
+     * @return why a publisher's audioProcessing stages cannot run, or null if they can. They need
+     * the custom audio driver or the file audio device, and as all publishers share the captured
+     * audio, only one chain can be installed at a time.
+     */
+    private String checkAudioProcessing() {
+
+        BaseAudioDevice audioDevice = AudioDeviceManager.getAudioDevice();
+        if (!supportsCaptureProcessing(audioDevice)) {
+            return "Error initializing publisher. audioProcessing needs the enableStereoOutput, lowLatencyAudio or fileAudioDevice session option.";
+        }
+        OTAudioProcessingChain current = getCaptureProcessing(audioDevice);
+        if (current != null && audioProcessingChains.containsValue(current)) {
+            return "Error initializing publisher. Another publisher already uses audioProcessing.";
+        }
+        return null;
+    }
+
+    /**
+     * Runs the publisher's audioProcessing stages on captured audio. Needs the custom audio
+     * driver, which is used when the session has the enableStereoOutput or lowLatencyAudio option,
+     * or the file audio device. initPublisher checks this first with checkAudioProcessing().
+     */
+    private void setUpAudioProcessing(final String publisherId, ReadableMap options) {
+
+        BaseAudioDevice audioDevice = AudioDeviceManager.getAudioDevice();
+        if (options == null || !supportsCaptureProcessing(audioDevice)) {
+            return;
+        }
+        // Building the map allocates and sendEventMap can wait on the batcher lock, so the
+        // listener only packs the two values into a pooled Message for the main thread.
+        final Handler voiceActivityHandler = new Handler(Looper.getMainLooper(), message -> {
+            sendVoiceActivity(publisherId, message.arg1 != 0, Float.intBitsToFloat(message.arg2));
+            return true;
+        });
+        OTAudioProcessingChain chain = OTAudioProcessingChain.fromOptions(options,
+                audioDevice.getCaptureSettings().getSampleRate(),
+                (speaking, audioLevel) -> voiceActivityHandler
+                        .obtainMessage(0, speaking ? 1 : 0, Float.floatToIntBits((float) audioLevel))
+                        .sendToTarget());
+        if (chain.isEmpty()) {
+            return;
+        }
+        audioProcessingChains.put(publisherId, chain);
+        setCaptureProcessing(audioDevice, chain);
+    }
+
+    private void sendVoiceActivity(String publisherId, boolean speaking, double audioLevel) {
+
+        String event = eventNames.publisherEvent(publisherId, EventNameTable.PUBLISHER_ON_VOICE_ACTIVITY);
+        if (hasListeners(event)) {
+            WritableMap activityInfo = Arguments.createMap();
+            activityInfo.putBoolean("speaking", speaking);
+            activityInfo.putDouble("audioLevel", audioLevel);
+            sendEventMap(getReactApplicationContext(), event, activityInfo);
+        }
+    }
+
+    private void removeAudioProcessing(String publisherId) {
+
+        OTAudioProcessingChain chain = audioProcessingChains.remove(publisherId);
+        BaseAudioDevice audioDevice = AudioDeviceManager.getAudioDevice();
+        if (chain != null && getCaptureProcessing(audioDevice) == chain) {
+            setCaptureProcessing(audioDevice, null);
+        }
+    }
+
+    private void cancelAudioTelemetry(String sessionId) {
+
+        Runnable task = audioTelemetryTasks.remove(sessionId);
+        if (task != null) {
+            audioTelemetryHandler.removeCallbacks(task);
+        }
+    }
+
+    private void invalidateStreamDescriptor(Stream stream) {
+
+        if (stream != null) {
+            sharedState.getStreamDescriptors().remove(stream.getStreamId());
+        }
+    }
+
+    private void removeFromActiveSpeakers(String id) {
+
+        for (Map.Entry<String, OTActiveSpeakerDetector> entry : activeSpeakerDetectors.entrySet()) {
+            OTActiveSpeakerDetector detector = entry.getValue();
+            if (detector.remove(id)) {
+                String event = eventNames.sessionEvent(entry.getKey(), EventNameTable.SESSION_ON_ACTIVE_SPEAKER_CHANGED);
+                sendEventMap(this.getReactApplicationContext(), event, detector.snapshot());
+            }
         }
     }
 
@@ -547,7 +968,7 @@ public class OTSessionManager extends ReactContextBaseJavaModule
             setConnectionStatus(session.getSessionId(), 6);
         }
         WritableMap errorInfo = EventUtils.prepareJSErrorMap(opentokError);
-        sendEventMap(this.getReactApplicationContext(), session.getSessionId() + ":" + sessionPreface + "onError", errorInfo);
+        sendUrgentEventMap(this.getReactApplicationContext(), eventNames.sessionEvent(session.getSessionId(), EventNameTable.SESSION_ON_ERROR), errorInfo);
         printLogs("There was an error");
     }
 
@@ -558,7 +979,7 @@ public class OTSessionManager extends ReactContextBaseJavaModule
         ConcurrentHashMap<String, Callback> mSessionConnectCallbacks = sharedState.getSessionDisconnectCallbacks();
         setConnectionStatus(session.getSessionId(), 0);
         WritableMap sessionInfo = EventUtils.prepareJSSessionMap(session);
-        sendEventMap(this.getReactApplicationContext(), session.getSessionId() + ":" + sessionPreface + "onDisconnected", sessionInfo);
+        sendUrgentEventMap(this.getReactApplicationContext(), eventNames.sessionEvent(session.getSessionId(), EventNameTable.SESSION_ON_DISCONNECTED), sessionInfo);
         Callback disconnectCallback = mSessionDisconnectCallbacks.get(session.getSessionId());
         if (disconnectCallback != null) {
             disconnectCallback.invoke();
@@ -566,6 +987,9 @@ public class OTSessionManager extends ReactContextBaseJavaModule
         mSessions.remove(session.getSessionId());
         mSessionConnectCallbacks.remove(session.getSessionId());
         mSessionDisconnectCallbacks.remove(session.getSessionId());
+        eventNames.unregisterSession(session.getSessionId());
+        activeSpeakerDetectors.remove(session.getSessionId());
+        cancelAudioTelemetry(session.getSessionId());
         printLogs("onDisconnected: Disconnected from session: " + session.getSessionId());
     }
 
@@ -574,8 +998,9 @@ public class OTSessionManager extends ReactContextBaseJavaModule
 
         ConcurrentHashMap<String, Stream> mSubscriberStreams = sharedState.getSubscriberStreams();
         mSubscriberStreams.put(stream.getStreamId(), stream);
-        WritableMap streamInfo = EventUtils.prepareJSStreamMap(stream, session);
-        sendEventMap(this.getReactApplicationContext(), session.getSessionId() + ":" + sessionPreface + "onStreamReceived", streamInfo);
+        sharedState.getStreamDescriptors().remove(stream.getStreamId());
+        WritableMap streamInfo = EventUtils.prepareCachedJSStreamMap(stream, session);
+        sendEventMap(this.getReactApplicationContext(), eventNames.sessionEvent(session.getSessionId(), EventNameTable.SESSION_ON_STREAM_RECEIVED), streamInfo);
         printLogs("onStreamReceived: New Stream Received " + stream.getStreamId() + " in session: " + session.getSessionId());
 
     }
@@ -590,14 +1015,14 @@ public class OTSessionManager extends ReactContextBaseJavaModule
             mCallback.invoke();
         }
         WritableMap sessionInfo = EventUtils.prepareJSSessionMap(session);
-        sendEventMap(this.getReactApplicationContext(), session.getSessionId() + ":" + sessionPreface + "onConnected", sessionInfo);
+        sendUrgentEventMap(this.getReactApplicationContext(), eventNames.sessionEvent(session.getSessionId(), EventNameTable.SESSION_ON_CONNECTED), sessionInfo);
         printLogs("onConnected: Connected to session: "+session.getSessionId());
     }
 
     @Override
     public void onReconnected(Session session) {
 
-        sendEventMap(this.getReactApplicationContext(), session.getSessionId() + ":" + sessionPreface + "onReconnected", null);
+        sendUrgentEventMap(this.getReactApplicationContext(), eventNames.sessionEvent(session.getSessionId(), EventNameTable.SESSION_ON_RECONNECTED), null);
         printLogs("Reconnected");
     }
 
@@ -605,7 +1030,7 @@ public class OTSessionManager extends ReactContextBaseJavaModule
     public void onReconnecting(Session session) {
 
         setConnectionStatus(session.getSessionId(), 3);
-        sendEventMap(this.getReactApplicationContext(), session.getSessionId() + ":" + sessionPreface + "onReconnecting", null);
+        sendUrgentEventMap(this.getReactApplicationContext(), eventNames.sessionEvent(session.getSessionId(), EventNameTable.SESSION_ON_RECONNECTING), null);
         printLogs("Reconnecting");
     }
 
@@ -616,7 +1041,7 @@ public class OTSessionManager extends ReactContextBaseJavaModule
         archiveInfo.putString("archiveId", id);
         archiveInfo.putString("name", name);
         archiveInfo.putString("sessionId", session.getSessionId());
-        sendEventMap(this.getReactApplicationContext(), session.getSessionId() + ":" + sessionPreface + "onArchiveStarted", archiveInfo);
+        sendEventMap(this.getReactApplicationContext(), eventNames.sessionEvent(session.getSessionId(), EventNameTable.SESSION_ON_ARCHIVE_STARTED), archiveInfo);
         printLogs("Archive Started: " + id);
     }
 
@@ -627,7 +1052,7 @@ public class OTSessionManager extends ReactContextBaseJavaModule
         archiveInfo.putString("archiveId", id);
         archiveInfo.putString("name", "");
         archiveInfo.putString("sessionId", session.getSessionId());
-        sendEventMap(this.getReactApplicationContext(), session.getSessionId() + ":" + sessionPreface + "onArchiveStopped", archiveInfo);
+        sendEventMap(this.getReactApplicationContext(), eventNames.sessionEvent(session.getSessionId(), EventNameTable.SESSION_ON_ARCHIVE_STOPPED), archiveInfo);
         printLogs("Archive Stopped: " + id);
     }
     @Override
@@ -637,7 +1062,7 @@ public class OTSessionManager extends ReactContextBaseJavaModule
         mConnections.put(connection.getConnectionId(), connection);
         WritableMap connectionInfo = EventUtils.prepareJSConnectionMap(connection);
         connectionInfo.putString("sessionId", session.getSessionId());
-        sendEventMap(this.getReactApplicationContext(), session.getSessionId() + ":" + sessionPreface + "onConnectionCreated", connectionInfo);
+        sendEventMap(this.getReactApplicationContext(), eventNames.sessionEvent(session.getSessionId(), EventNameTable.SESSION_ON_CONNECTION_CREATED), connectionInfo);
         printLogs("onConnectionCreated: Connection Created: "+connection.getConnectionId());
     }
 
@@ -648,14 +1073,15 @@ public class OTSessionManager extends ReactContextBaseJavaModule
         mConnections.remove(connection.getConnectionId());
         WritableMap connectionInfo = EventUtils.prepareJSConnectionMap(connection);
         connectionInfo.putString("sessionId", session.getSessionId());
-        sendEventMap(this.getReactApplicationContext(), session.getSessionId() + ":" + sessionPreface + "onConnectionDestroyed", connectionInfo);
+        sendEventMap(this.getReactApplicationContext(), eventNames.sessionEvent(session.getSessionId(), EventNameTable.SESSION_ON_CONNECTION_DESTROYED), connectionInfo);
         printLogs("onConnectionDestroyed: Connection Destroyed: "+connection.getConnectionId());
     }
     @Override
     public void onStreamDropped(Session session, Stream stream) {
 
+        sharedState.getStreamDescriptors().remove(stream.getStreamId());
         WritableMap streamInfo = EventUtils.prepareJSStreamMap(stream, session);
-        sendEventMap(this.getReactApplicationContext(), session.getSessionId() + ":" + sessionPreface + "onStreamDropped", streamInfo);
+        sendEventMap(this.getReactApplicationContext(), eventNames.sessionEvent(session.getSessionId(), EventNameTable.SESSION_ON_STREAM_DROPPED), streamInfo);
         printLogs("onStreamDropped: Stream Dropped: "+stream.getStreamId() +" in session: "+session.getSessionId());
     }
 
@@ -666,7 +1092,7 @@ public class OTSessionManager extends ReactContextBaseJavaModule
         ConcurrentHashMap<String, Stream> mSubscriberStreams = sharedState.getSubscriberStreams();
         mSubscriberStreams.put(stream.getStreamId(), stream);
         if (publisherId.length() > 0) {
-            String event = publisherId + ":" + publisherPreface + "onStreamCreated";;
+            String event = eventNames.publisherEvent(publisherId, EventNameTable.PUBLISHER_ON_STREAM_CREATED);
             WritableMap streamInfo = EventUtils.prepareJSStreamMap(stream, publisherKit.getSession());
             sendEventMap(this.getReactApplicationContext(), event, streamInfo);
         }
@@ -678,11 +1104,12 @@ public class OTSessionManager extends ReactContextBaseJavaModule
     public void onStreamDestroyed(PublisherKit publisherKit, Stream stream) {
 
         String publisherId = Utils.getPublisherId(publisherKit);
-        String event = publisherId + ":" + publisherPreface + "onStreamDestroyed";
         ConcurrentHashMap<String, Stream> mSubscriberStreams = sharedState.getSubscriberStreams();
         String mStreamId = stream.getStreamId();
         mSubscriberStreams.remove(mStreamId);
+        sharedState.getStreamDescriptors().remove(mStreamId);
         if (publisherId.length() > 0) {
+            String event = eventNames.publisherEvent(publisherId, EventNameTable.PUBLISHER_ON_STREAM_DESTROYED);
             WritableMap streamInfo = EventUtils.prepareJSStreamMap(stream, publisherKit.getSession());
             sendEventMap(this.getReactApplicationContext(), event, streamInfo);
         }
@@ -690,7 +1117,12 @@ public class OTSessionManager extends ReactContextBaseJavaModule
         if (mCallback != null) {
             mCallback.invoke();
         }
-        sharedState.getPublishers().remove(publisherId);
+        sharedState.removePublisher(publisherId);
+        eventNames.unregisterPublisher(publisherId);
+        audioLevelCoalescer.remove(publisherId);
+        removeFromActiveSpeakers(publisherId);
+        statsAggregator.removePublisher(publisherId);
+        removeAudioProcessing(publisherId);
         printLogs("onStreamDestroyed: Publisher Stream Destroyed. Own stream "+stream.getStreamId());
     }
 
@@ -699,9 +1131,9 @@ public class OTSessionManager extends ReactContextBaseJavaModule
 
         String publisherId = Utils.getPublisherId(publisherKit);
         if (publisherId.length() > 0) {
-            String event = publisherId + ":" + publisherPreface +  "onError";
+            String event = eventNames.publisherEvent(publisherId, EventNameTable.PUBLISHER_ON_ERROR);
             WritableMap errorInfo = EventUtils.prepareJSErrorMap(opentokError);
-            sendEventMap(this.getReactApplicationContext(), event, errorInfo);
+            sendUrgentEventMap(this.getReactApplicationContext(), event, errorInfo);
         }
         printLogs("onError: "+opentokError.getErrorDomain() + " : " +
                 opentokError.getErrorCode() +  " - "+opentokError.getMessage());
@@ -712,8 +1144,52 @@ public class OTSessionManager extends ReactContextBaseJavaModule
 
         String publisherId = Utils.getPublisherId(publisher);
         if (publisherId.length() > 0) {
-            String event = publisherId + ":" + publisherPreface + "onAudioLevelUpdated";
-            sendEventWithString(this.getReactApplicationContext(), event, String.valueOf(audioLevel));
+            updateActiveSpeaker(publisher.getSession(), publisherId, true, audioLevel);
+            String event = eventNames.publisherEvent(publisherId, EventNameTable.PUBLISHER_ON_AUDIO_LEVEL_UPDATED);
+            if (audioLevelCoalescer.isEnabled()) {
+                if (hasListeners(event)) {
+                    audioLevelCoalescer.updatePublisherLevel(publisherId, audioLevel);
+                }
+            } else {
+                sendEventWithString(this.getReactApplicationContext(), event, String.valueOf(audioLevel));
+            }
+        }
+    }
+
+    @Override
+    public void onAudioError(String direction, String status, String message, int attempt) {
+
+        for (String sessionId : sharedState.getSessions().keySet()) {
+            WritableMap errorInfo = EventUtils.createError(message);
+            errorInfo.putString("sessionId", sessionId);
+            errorInfo.putString("direction", direction);
+            errorInfo.putString("status", status);
+            errorInfo.putInt("attempt", attempt);
+            sendUrgentEventMap(this.getReactApplicationContext(), eventNames.sessionEvent(sessionId, EventNameTable.SESSION_ON_AUDIO_DEVICE_ERROR), errorInfo);
+        }
+        printLogs("Audio device " + direction + " " + status + ": " + message);
+    }
+
+    @Override
+    public void onAudioStats(PublisherKit publisher, PublisherKit.PublisherAudioStats[] stats) {
+
+        String publisherId = Utils.getPublisherId(publisher);
+        if (publisherId.length() > 0) {
+            statsAggregator.addPublisherAudioStats(publisherId, stats);
+        }
+    }
+
+    @Override
+    public void onVideoStats(PublisherKit publisher, PublisherKit.PublisherVideoStats[] stats) {
+
+        String publisherId = Utils.getPublisherId(publisher);
+        if (publisherId.length() > 0) {
+            statsAggregator.addPublisherVideoStats(publisherId, stats);
+            String event = eventNames.publisherEvent(publisherId, EventNameTable.PUBLISHER_ON_SCREEN_CAPTURE_STATS);
+            if (publisher.getCapturer() instanceof OTScreenCapturer && hasListeners(event)) {
+                sendEventMap(this.getReactApplicationContext(), event,
+                        ((OTScreenCapturer) publisher.getCapturer()).getStats().prepareMap());
+            }
         }
     }
 
@@ -726,9 +1202,9 @@ public class OTSessionManager extends ReactContextBaseJavaModule
             Stream mStream = streams.get(streamId);
             WritableMap subscriberInfo = Arguments.createMap();
             if (mStream != null) {
-                subscriberInfo.putMap("stream", EventUtils.prepareJSStreamMap(mStream, subscriberKit.getSession()));
+                subscriberInfo.putMap("stream", EventUtils.prepareCachedJSStreamMap(mStream, subscriberKit.getSession()));
             }
-            sendEventMap(this.getReactApplicationContext(), subscriberPreface +  "onConnected", subscriberInfo);
+            sendUrgentEventMap(this.getReactApplicationContext(), subscriberPreface +  "onConnected", subscriberInfo);
         }
         printLogs("onConnected: Subscriber connected. Stream: "+subscriberKit.getStream().getStreamId());
     }
@@ -742,9 +1218,9 @@ public class OTSessionManager extends ReactContextBaseJavaModule
             Stream mStream = streams.get(streamId);
             WritableMap subscriberInfo = Arguments.createMap();
             if (mStream != null) {
-                subscriberInfo.putMap("stream", EventUtils.prepareJSStreamMap(mStream, subscriberKit.getSession()));
+                subscriberInfo.putMap("stream", EventUtils.prepareCachedJSStreamMap(mStream, subscriberKit.getSession()));
             }
-            sendEventMap(this.getReactApplicationContext(), subscriberPreface +  "onDisconnected", subscriberInfo);
+            sendUrgentEventMap(this.getReactApplicationContext(), subscriberPreface +  "onDisconnected", subscriberInfo);
         }
         printLogs("onDisconnected: Subscriber disconnected. Stream: "+subscriberKit.getStream().getStreamId());
     }
@@ -758,9 +1234,9 @@ public class OTSessionManager extends ReactContextBaseJavaModule
             Stream mStream = streams.get(streamId);
             WritableMap subscriberInfo = Arguments.createMap();
             if (mStream != null) {
-                subscriberInfo.putMap("stream", EventUtils.prepareJSStreamMap(mStream, subscriberKit.getSession()));
+                subscriberInfo.putMap("stream", EventUtils.prepareCachedJSStreamMap(mStream, subscriberKit.getSession()));
             }
-            sendEventMap(this.getReactApplicationContext(), subscriberPreface +  "onReconnected", subscriberInfo);
+            sendUrgentEventMap(this.getReactApplicationContext(), subscriberPreface +  "onReconnected", subscriberInfo);
         }
         printLogs("onReconnected: Subscriber reconnected. Stream: "+subscriberKit.getStream().getStreamId());
     }
@@ -774,10 +1250,10 @@ public class OTSessionManager extends ReactContextBaseJavaModule
             Stream mStream = streams.get(streamId);
             WritableMap subscriberInfo = Arguments.createMap();
             if (mStream != null) {
-                subscriberInfo.putMap("stream", EventUtils.prepareJSStreamMap(mStream, subscriberKit.getSession()));
+                subscriberInfo.putMap("stream", EventUtils.prepareCachedJSStreamMap(mStream, subscriberKit.getSession()));
             }
             subscriberInfo.putMap("error", EventUtils.prepareJSErrorMap(opentokError));
-            sendEventMap(this.getReactApplicationContext(), subscriberPreface +  "onError", subscriberInfo);
+            sendUrgentEventMap(this.getReactApplicationContext(), subscriberPreface +  "onError", subscriberInfo);
         }
         printLogs("onError: "+opentokError.getErrorDomain() + " : " +
                 opentokError.getErrorCode() +  " - "+opentokError.getMessage());
@@ -794,7 +1270,7 @@ public class OTSessionManager extends ReactContextBaseJavaModule
             signalInfo.putString("connectionId", connection.getConnectionId());
         }
         signalInfo.putString("sessionId", session.getSessionId());
-        sendEventMap(this.getReactApplicationContext(), session.getSessionId() + ":" + sessionPreface + "onSignalReceived", signalInfo);
+        sendEventMap(this.getReactApplicationContext(), eventNames.sessionEvent(session.getSessionId(), EventNameTable.SESSION_ON_SIGNAL_RECEIVED), signalInfo);
         printLogs("onSignalReceived: Data: " + data + " Type: " + type);
     }
 
@@ -803,11 +1279,15 @@ public class OTSessionManager extends ReactContextBaseJavaModule
 
         String streamId = Utils.getStreamIdBySubscriber(subscriber);
         if (streamId.length() > 0) {
+            statsAggregator.addAudioStats(streamId, stats);
+            sendStatsSummary(subscriber, streamId);
+        }
+        if (streamId.length() > 0 && hasListeners(subscriberPreface + "onAudioStats")) {
             ConcurrentHashMap<String, Stream> streams = sharedState.getSubscriberStreams();
             Stream mStream = streams.get(streamId);
             WritableMap subscriberInfo = Arguments.createMap();
             if (mStream != null) {
-                subscriberInfo.putMap("stream", EventUtils.prepareJSStreamMap(mStream, subscriber.getSession()));
+                subscriberInfo.putMap("stream", EventUtils.prepareCachedJSStreamMap(mStream, subscriber.getSession()));
             }
             subscriberInfo.putMap("audioStats", EventUtils.prepareAudioNetworkStats(stats));
             sendEventMap(this.getReactApplicationContext(), subscriberPreface +  "onAudioStats", subscriberInfo);
@@ -819,11 +1299,15 @@ public class OTSessionManager extends ReactContextBaseJavaModule
 
         String streamId = Utils.getStreamIdBySubscriber(subscriber);
         if (streamId.length() > 0) {
+            statsAggregator.addVideoStats(streamId, stats);
+            sendStatsSummary(subscriber, streamId);
+        }
+        if (streamId.length() > 0 && hasListeners(subscriberPreface + "onVideoStats")) {
             ConcurrentHashMap<String, Stream> streams = sharedState.getSubscriberStreams();
             Stream mStream = streams.get(streamId);
             WritableMap subscriberInfo = Arguments.createMap();
             if (mStream != null) {
-                subscriberInfo.putMap("stream", EventUtils.prepareJSStreamMap(mStream, subscriber.getSession()));
+                subscriberInfo.putMap("stream", EventUtils.prepareCachedJSStreamMap(mStream, subscriber.getSession()));
             }
             subscriberInfo.putMap("videoStats", EventUtils.prepareVideoNetworkStats(stats));
             sendEventMap(this.getReactApplicationContext(), subscriberPreface + "onVideoStats", subscriberInfo);
@@ -833,16 +1317,28 @@ public class OTSessionManager extends ReactContextBaseJavaModule
     @Override
     public void onAudioLevelUpdated(SubscriberKit subscriber, float audioLevel) {
 
+        String event = subscriberPreface + "onAudioLevelUpdated";
+        boolean detectingSpeakers = !activeSpeakerDetectors.isEmpty();
+        if (!detectingSpeakers && !hasListeners(event)) {
+            return;
+        }
         String streamId = Utils.getStreamIdBySubscriber(subscriber);
-        if (streamId.length() > 0) {
+        if (streamId.length() > 0 && detectingSpeakers) {
+            updateActiveSpeaker(subscriber.getSession(), streamId, false, audioLevel);
+        }
+        if (streamId.length() > 0 && hasListeners(event)) {
+            if (audioLevelCoalescer.isEnabled()) {
+                audioLevelCoalescer.updateSubscriberLevel(streamId, audioLevel);
+                return;
+            }
             ConcurrentHashMap<String, Stream> streams = sharedState.getSubscriberStreams();
             Stream mStream = streams.get(streamId);
             WritableMap subscriberInfo = Arguments.createMap();
             if (mStream != null) {
-                subscriberInfo.putMap("stream", EventUtils.prepareJSStreamMap(mStream, subscriber.getSession()));
+                subscriberInfo.putMap("stream", EventUtils.prepareCachedJSStreamMap(mStream, subscriber.getSession()));
             }
             subscriberInfo.putString("audioLevel", String.valueOf(audioLevel));
-            sendEventMap(this.getReactApplicationContext(), subscriberPreface + "onAudioLevelUpdated", subscriberInfo);
+            sendEventMap(this.getReactApplicationContext(), event, subscriberInfo);
         }
     }
 
@@ -855,7 +1351,7 @@ public class OTSessionManager extends ReactContextBaseJavaModule
             Stream mStream = streams.get(streamId);
             WritableMap subscriberInfo = Arguments.createMap();
             if (mStream != null) {
-                subscriberInfo.putMap("stream", EventUtils.prepareJSStreamMap(mStream, subscriber.getSession()));
+                subscriberInfo.putMap("stream", EventUtils.prepareCachedJSStreamMap(mStream, subscriber.getSession()));
             }
             subscriberInfo.putString("reason", reason);
             sendEventMap(this.getReactApplicationContext(), subscriberPreface + "onVideoDisabled", subscriberInfo);
@@ -872,7 +1368,7 @@ public class OTSessionManager extends ReactContextBaseJavaModule
             Stream mStream = streams.get(streamId);
             WritableMap subscriberInfo = Arguments.createMap();
             if (mStream != null) {
-                subscriberInfo.putMap("stream", EventUtils.prepareJSStreamMap(mStream, subscriber.getSession()));
+                subscriberInfo.putMap("stream", EventUtils.prepareCachedJSStreamMap(mStream, subscriber.getSession()));
             }
             subscriberInfo.putString("reason", reason);
             sendEventMap(this.getReactApplicationContext(), subscriberPreface + "onVideoEnabled", subscriberInfo);
@@ -889,7 +1385,7 @@ public class OTSessionManager extends ReactContextBaseJavaModule
             Stream mStream = streams.get(streamId);
             WritableMap subscriberInfo = Arguments.createMap();
             if (mStream != null) {
-                subscriberInfo.putMap("stream", EventUtils.prepareJSStreamMap(mStream, subscriber.getSession()));
+                subscriberInfo.putMap("stream", EventUtils.prepareCachedJSStreamMap(mStream, subscriber.getSession()));
             }
             sendEventMap(this.getReactApplicationContext(), subscriberPreface + "onVideoDisableWarning", subscriberInfo);
         }
@@ -905,7 +1401,7 @@ public class OTSessionManager extends ReactContextBaseJavaModule
             Stream mStream = streams.get(streamId);
             WritableMap subscriberInfo = Arguments.createMap();
             if (mStream != null) {
-                subscriberInfo.putMap("stream", EventUtils.prepareJSStreamMap(mStream, subscriber.getSession()));
+                subscriberInfo.putMap("stream", EventUtils.prepareCachedJSStreamMap(mStream, subscriber.getSession()));
             }
             sendEventMap(this.getReactApplicationContext(), subscriberPreface + "onVideoDisableWarningLifted", subscriberInfo);
         }
@@ -921,7 +1417,7 @@ public class OTSessionManager extends ReactContextBaseJavaModule
             Stream mStream = streams.get(streamId);
             WritableMap subscriberInfo = Arguments.createMap();
             if (mStream != null) {
-                subscriberInfo.putMap("stream", EventUtils.prepareJSStreamMap(mStream, subscriber.getSession()));
+                subscriberInfo.putMap("stream", EventUtils.prepareCachedJSStreamMap(mStream, subscriber.getSession()));
             }
             sendEventMap(this.getReactApplicationContext(), subscriberPreface + "onVideoDataReceived", subscriberInfo);
         }
@@ -930,32 +1426,36 @@ public class OTSessionManager extends ReactContextBaseJavaModule
     @Override
     public void onStreamHasAudioChanged(Session session, Stream stream, boolean Audio) {
 
+        invalidateStreamDescriptor(stream);
         WritableMap eventData = EventUtils.prepareStreamPropertyChangedEventData("hasAudio", !Audio, Audio, stream, session);
-        sendEventMap(this.getReactApplicationContext(), session.getSessionId() + ":" + sessionPreface + "onStreamPropertyChanged", eventData);
+        sendEventMap(this.getReactApplicationContext(), eventNames.sessionEvent(session.getSessionId(), EventNameTable.SESSION_ON_STREAM_PROPERTY_CHANGED), eventData);
         printLogs("onStreamHasAudioChanged");
     }
 
     @Override
     public void onStreamHasCaptionsChanged(Session session, Stream stream, boolean hasCaptions) {
+        invalidateStreamDescriptor(stream);
         WritableMap eventData = Arguments.createMap();
         if (stream != null) {
           eventData.putMap("stream", EventUtils.prepareJSStreamMap(stream, session));
         }
         eventData.putBoolean("hasCaptions", hasCaptions);
-        sendEventMap(this.getReactApplicationContext(), session.getSessionId() + ":" + sessionPreface + "onStreamHasCaptionsChanged", eventData);
+        sendEventMap(this.getReactApplicationContext(), eventNames.sessionEvent(session.getSessionId(), EventNameTable.SESSION_ON_STREAM_HAS_CAPTIONS_CHANGED), eventData);
         printLogs("onStreamHasCaptionsChanged");
     }
 
     @Override
     public void onStreamHasVideoChanged(Session session, Stream stream, boolean Video) {
 
+        invalidateStreamDescriptor(stream);
         WritableMap eventData = EventUtils.prepareStreamPropertyChangedEventData("hasVideo", !Video, Video, stream, session);
-        sendEventMap(this.getReactApplicationContext(), session.getSessionId() + ":" + sessionPreface + "onStreamPropertyChanged", eventData);
+        sendEventMap(this.getReactApplicationContext(), eventNames.sessionEvent(session.getSessionId(), EventNameTable.SESSION_ON_STREAM_PROPERTY_CHANGED), eventData);
         printLogs("onStreamHasVideoChanged");
     }
 
     @Override
     public void onStreamVideoDimensionsChanged(Session session, Stream stream, int width, int height) {
+        invalidateStreamDescriptor(stream);
         ConcurrentHashMap<String, Stream> mSubscriberStreams = sharedState.getSubscriberStreams();
         Stream mStream = mSubscriberStreams.get(stream.getStreamId());
         WritableMap oldVideoDimensions = Arguments.createMap();
@@ -967,7 +1467,7 @@ public class OTSessionManager extends ReactContextBaseJavaModule
         newVideoDimensions.putInt("height", height);
         newVideoDimensions.putInt("width", width);
         WritableMap eventData = EventUtils.prepareStreamPropertyChangedEventData("videoDimensions", oldVideoDimensions, newVideoDimensions, stream, session);
-        sendEventMap(this.getReactApplicationContext(), session.getSessionId() + ":" + sessionPreface + "onStreamPropertyChanged", eventData);
+        sendEventMap(this.getReactApplicationContext(), eventNames.sessionEvent(session.getSessionId(), EventNameTable.SESSION_ON_STREAM_PROPERTY_CHANGED), eventData);
         printLogs("onStreamVideoDimensionsChanged");
 
     }
@@ -975,10 +1475,11 @@ public class OTSessionManager extends ReactContextBaseJavaModule
     @Override
     public void onStreamVideoTypeChanged(Session session, Stream stream, Stream.StreamVideoType videoType) {
 
+        invalidateStreamDescriptor(stream);
         ConcurrentHashMap<String, Stream> mSubscriberStreams = sharedState.getSubscriberStreams();
         String oldVideoType = stream.getStreamVideoType().toString();
         WritableMap eventData = EventUtils.prepareStreamPropertyChangedEventData("videoType", oldVideoType, videoType.toString(), stream, session);
-        sendEventMap(this.getReactApplicationContext(), session.getSessionId() + ":" + sessionPreface + "onStreamPropertyChanged", eventData);
+        sendEventMap(this.getReactApplicationContext(), eventNames.sessionEvent(session.getSessionId(), EventNameTable.SESSION_ON_STREAM_PROPERTY_CHANGED), eventData);
         printLogs("onStreamVideoTypeChanged");
     }
 
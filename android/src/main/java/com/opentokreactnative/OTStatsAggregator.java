@@ -0,0 +1,232 @@
+package com.opentokreactnative;
+
+import android.os.SystemClock;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.opentok.android.PublisherKit;
+import com.opentok.android.SubscriberKit;
+import com.opentokreactnative.utils.StatsWindow;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps a sliding window of audio and video network stats per subscribed stream and
+ * per publisher, and turns the cumulative SDK counters into bitrate and packet loss
+ * summaries.
+ */
+class OTStatsAggregator {
+
+    private static final int WINDOW_SAMPLES = 30;
+
+    private static final class StreamStats {
+        final StatsWindow audio = new StatsWindow(WINDOW_SAMPLES);
+        final StatsWindow video = new StatsWindow(WINDOW_SAMPLES);
+        volatile long lastSummaryTime = 0;
+    }
+
+    private final ConcurrentHashMap<String, StreamStats> streams = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, StreamStats> publishers = new ConcurrentHashMap<>();
+
+    void addAudioStats(String streamId, SubscriberKit.SubscriberAudioStats stats) {
+
+        getStreamStats(streamId).audio.add(stats.timeStamp, stats.audioBytesReceived,
+                stats.audioPacketsReceived, stats.audioPacketsLost);
+    }
+
+    void addVideoStats(String streamId, SubscriberKit.SubscriberVideoStats stats) {
+
+        getStreamStats(streamId).video.add(stats.timeStamp, stats.videoBytesReceived,
+                stats.videoPacketsReceived, stats.videoPacketsLost);
+    }
+
+    void addPublisherAudioStats(String publisherId, PublisherKit.PublisherAudioStats[] stats) {
+
+        // A publisher reports one entry per subscriber (relayed) or a single one (routed).
+        long bytesSent = 0;
+        long packetsSent = 0;
+        long packetsLost = 0;
+        double timestamp = 0;
+        for (PublisherKit.PublisherAudioStats entry : stats) {
+            bytesSent += entry.audioBytesSent;
+            packetsSent += entry.audioPacketsSent;
+            packetsLost += entry.audioPacketsLost;
+            timestamp = Math.max(timestamp, entry.timeStamp);
+        }
+        if (stats.length > 0) {
+            getStats(publishers, publisherId).audio.add(timestamp, bytesSent, packetsSent, packetsLost);
+        }
+    }
+
+    void addPublisherVideoStats(String publisherId, PublisherKit.PublisherVideoStats[] stats) {
+
+        long bytesSent = 0;
+        long packetsSent = 0;
+        long packetsLost = 0;
+        double timestamp = 0;
+        for (PublisherKit.PublisherVideoStats entry : stats) {
+            bytesSent += entry.videoBytesSent;
+            packetsSent += entry.videoPacketsSent;
+            packetsLost += entry.videoPacketsLost;
+            timestamp = Math.max(timestamp, entry.timeStamp);
+        }
+        if (stats.length > 0) {
+            getStats(publishers, publisherId).video.add(timestamp, bytesSent, packetsSent, packetsLost);
+        }
+    }
+
+    void remove(String streamId) {
+
+        streams.remove(streamId);
+    }
+
+    void removePublisher(String publisherId) {
+
+        publishers.remove(publisherId);
+    }
+
+    /**
+     * Returns true at most once per interval for each stream.
+     */
+    boolean shouldSendSummary(String streamId, int interval) {
+
+        StreamStats streamStats = streams.get(streamId);
+        if (streamStats == null) {
+            return false;
+        }
+        long now = SystemClock.elapsedRealtime();
+        if (now - streamStats.lastSummaryTime < interval) {
+            return false;
+        }
+        streamStats.lastSummaryTime = now;
+        return true;
+    }
+
+    @Nullable
+    WritableMap prepareSummary(String streamId) {
+
+        StreamStats streamStats = streams.get(streamId);
+        if (streamStats == null) {
+            return null;
+        }
+        WritableMap summary = Arguments.createMap();
+        summary.putString("streamId", streamId);
+        putWindow(summary, "audio", streamStats.audio);
+        putWindow(summary, "video", streamStats.video);
+        return summary;
+    }
+
+    /**
+     * Builds a column-oriented snapshot of the given subscribers and publishers: one
+     * array per metric with an entry per stream, so no map is allocated per stream.
+     * Metrics that are not available yet are null.
+     */
+    WritableMap prepareQualitySnapshot(String sessionId, List<String> streamIds, List<String> publisherIds) {
+
+        WritableArray ids = Arguments.createArray();
+        WritableArray types = Arguments.createArray();
+        WritableArray audioBitrate = Arguments.createArray();
+        WritableArray videoBitrate = Arguments.createArray();
+        WritableArray audioPacketLoss = Arguments.createArray();
+        WritableArray videoPacketLoss = Arguments.createArray();
+        WritableArray mos = Arguments.createArray();
+        for (int i = 0; i < streamIds.size() + publisherIds.size(); i++) {
+            boolean publisher = i >= streamIds.size();
+            String id = publisher ? publisherIds.get(i - streamIds.size()) : streamIds.get(i);
+            StreamStats streamStats = publisher ? publishers.get(id) : streams.get(id);
+            ids.pushString(id);
+            types.pushString(publisher ? "publisher" : "subscriber");
+            double audioLoss = pushWindow(streamStats != null ? streamStats.audio : null, audioBitrate, audioPacketLoss);
+            double videoLoss = pushWindow(streamStats != null ? streamStats.video : null, videoBitrate, videoPacketLoss);
+            if (audioLoss >= 0 || videoLoss >= 0) {
+                mos.pushDouble(estimateMos(audioLoss >= 0 ? audioLoss : videoLoss));
+            } else {
+                mos.pushNull();
+            }
+        }
+        WritableMap snapshot = Arguments.createMap();
+        snapshot.putString("sessionId", sessionId);
+        snapshot.putDouble("timestamp", System.currentTimeMillis());
+        snapshot.putArray("ids", ids);
+        snapshot.putArray("types", types);
+        snapshot.putArray("audioBitrate", audioBitrate);
+        snapshot.putArray("videoBitrate", videoBitrate);
+        snapshot.putArray("audioPacketLossPercent", audioPacketLoss);
+        snapshot.putArray("videoPacketLossPercent", videoPacketLoss);
+        snapshot.putArray("mos", mos);
+        return snapshot;
+    }
+
+    /**
+     * Pushes the window bitrate and packet loss, or nulls.
+     *
+     * @return the packet loss percentage, or -1 when the window has no data.
+     */
+    private static double pushWindow(@Nullable StatsWindow window, WritableArray bitrates, WritableArray packetLoss) {
+
+        if (window != null) {
+            synchronized (window) {
+                if (window.compute()) {
+                    bitrates.pushDouble(window.getBitrate());
+                    packetLoss.pushDouble(window.getPacketLossPercent());
+                    return window.getPacketLossPercent();
+                }
+            }
+        }
+        bitrates.pushNull();
+        packetLoss.pushNull();
+        return -1;
+    }
+
+    /**
+     * MOS-like score (1 to 4.5) from packet loss, using the E-model with no delay impairment
+     * and a loss robustness factor typical of Opus.
+     */
+    static double estimateMos(double packetLossPercent) {
+
+        double lossImpairment = 95 * packetLossPercent / (packetLossPercent + 10);
+        double r = 93.2 - lossImpairment;
+        if (r <= 0) {
+            return 1;
+        }
+        return Math.min(1 + 0.035 * r + 0.000007 * r * (r - 60) * (100 - r), 4.5);
+    }
+
+    private StreamStats getStreamStats(String streamId) {
+
+        return getStats(streams, streamId);
+    }
+
+    private static StreamStats getStats(ConcurrentHashMap<String, StreamStats> statsMap, String id) {
+
+        StreamStats streamStats = statsMap.get(id);
+        if (streamStats == null) {
+            streamStats = statsMap.computeIfAbsent(id, key -> new StreamStats());
+        }
+        return streamStats;
+    }
+
+    private static void putWindow(WritableMap summary, String key, StatsWindow window) {
+
+        synchronized (window) {
+            if (!window.compute()) {
+                summary.putNull(key);
+                return;
+            }
+            WritableMap windowInfo = Arguments.createMap();
+            windowInfo.putDouble("bitrate", window.getBitrate());
+            windowInfo.putDouble("packetLossPercent", window.getPacketLossPercent());
+            windowInfo.putDouble("bitrateMin", window.getBitrateMin());
+            windowInfo.putDouble("bitrateAvg", window.getBitrateAvg());
+            windowInfo.putDouble("bitrateMax", window.getBitrateMax());
+            windowInfo.putDouble("bitrateP50", window.getBitrateP50());
+            windowInfo.putDouble("bitrateP95", window.getBitrateP95());
+            windowInfo.putInt("samples", window.getIntervals() + 1);
+            summary.putMap(key, windowInfo);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.opentokreactnative.utils;
+
+/**
+ * Smooths audio delay measurements for one direction (render or capture).
+ *
+ * Measurements come either from AudioTrack/AudioRecord timestamps or, when those are not
+ * available, from buffer arithmetic. The estimate is an exponential moving average; a
+ * measurement that deviates from it by more than a few mean deviations is rejected as an
+ * outlier, unless outliers keep coming, in which case the delay really changed (e.g. after
+ * a route change) and the estimate restarts from the new value.
+ *
+ * update() and reset() must be called from a single thread. The getters may be called
+ * from any thread.
+ */
+public final class AudioDelayEstimator {
+
+    private static final double SMOOTHING = 0.1;
+    private static final double DEVIATION_SMOOTHING = 0.25;
+    private static final double OUTLIER_DEVIATIONS = 4;
+    private static final double MIN_OUTLIER_DISTANCE = 20;
+    private static final int MAX_CONSECUTIVE_OUTLIERS = 10;
+    private static final double MAX_DELAY = 1000;
+
+    private boolean initialized = false;
+    private int consecutiveOutliers = 0;
+
+    private volatile double delay = 0;
+    private volatile double deviation = 0;
+    private volatile double lastMeasurement = 0;
+    private volatile boolean timestampBased = false;
+    private volatile long measurements = 0;
+    private volatile long outliers = 0;
+
+    public void reset() {
+
+        initialized = false;
+        consecutiveOutliers = 0;
+        delay = 0;
+        deviation = 0;
+    }
+
+    /**
+     * @param measuredDelay the measured delay, in milliseconds.
+     * @param fromTimestamp whether the measurement comes from a device timestamp.
+     */
+    public void update(double measuredDelay, boolean fromTimestamp) {
+
+        if (measuredDelay < 0 || measuredDelay > MAX_DELAY) {
+            outliers++;
+            return;
+        }
+        measurements++;
+        lastMeasurement = measuredDelay;
+        if (timestampBased != fromTimestamp) {
+            // The source changed, so the previous estimate is not comparable.
+            timestampBased = fromTimestamp;
+            initialized = false;
+        }
+        if (!initialized) {
+            restart(measuredDelay);
+            return;
+        }
+        double error = measuredDelay - delay;
+        if (Math.abs(error) > Math.max(OUTLIER_DEVIATIONS * deviation, MIN_OUTLIER_DISTANCE)) {
+            outliers++;
+            if (++consecutiveOutliers >= MAX_CONSECUTIVE_OUTLIERS) {
+                restart(measuredDelay);
+            }
+            return;
+        }
+        consecutiveOutliers = 0;
+        delay += SMOOTHING * error;
+        deviation += DEVIATION_SMOOTHING * (Math.abs(error) - deviation);
+    }
+
+    private void restart(double measuredDelay) {
+
+        initialized = true;
+        consecutiveOutliers = 0;
+        delay = measuredDelay;
+        deviation = 0;
+    }
+
+    /**
+     * @return the smoothed delay, in milliseconds.
+     */
+    public int getDelay() {
+        return (int) Math.round(delay);
+    }
+
+    public double getDeviation() {
+        return deviation;
+    }
+
+    public double getLastMeasurement() {
+        return lastMeasurement;
+    }
+
+    public boolean isTimestampBased() {
+        return timestampBased;
+    }
+
+    public long getMeasurements() {
+        return measurements;
+    }
+
+    public long getOutliers() {
+        return outliers;
+    }
+}
@@ -0,0 +1,127 @@
+package com.opentokreactnative.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precomputed JS event names for sessions and publishers.
+ *
+ * Event names have the form "{id}:{preface}{event}". They are built once when a
+ * session or publisher is created and looked up by event code afterwards, so SDK
+ * callbacks do not concatenate strings on every event. The cached String instances
+ * also keep their hash code, which makes the subscription check cheaper.
+ */
+public final class EventNameTable {
+
+    public static final int SESSION_ON_ERROR = 0;
+    public static final int SESSION_ON_DISCONNECTED = 1;
+    public static final int SESSION_ON_STREAM_RECEIVED = 2;
+    public static final int SESSION_ON_CONNECTED = 3;
+    public static final int SESSION_ON_RECONNECTED = 4;
+    public static final int SESSION_ON_RECONNECTING = 5;
+    public static final int SESSION_ON_ARCHIVE_STARTED = 6;
+    public static final int SESSION_ON_ARCHIVE_STOPPED = 7;
+    public static final int SESSION_ON_CONNECTION_CREATED = 8;
+    public static final int SESSION_ON_CONNECTION_DESTROYED = 9;
+    public static final int SESSION_ON_STREAM_DROPPED = 10;
+    public static final int SESSION_ON_SIGNAL_RECEIVED = 11;
+    public static final int SESSION_ON_STREAM_PROPERTY_CHANGED = 12;
+    public static final int SESSION_ON_STREAM_HAS_CAPTIONS_CHANGED = 13;
+    public static final int SESSION_ON_ACTIVE_SPEAKER_CHANGED = 14;
+    public static final int SESSION_ON_AUDIO_TELEMETRY = 15;
+    public static final int SESSION_ON_AUDIO_DEVICE_ERROR = 16;
+
+    public static final int PUBLISHER_ON_STREAM_CREATED = 0;
+    public static final int PUBLISHER_ON_STREAM_DESTROYED = 1;
+    public static final int PUBLISHER_ON_ERROR = 2;
+    public static final int PUBLISHER_ON_AUDIO_LEVEL_UPDATED = 3;
+    public static final int PUBLISHER_ON_VOICE_ACTIVITY = 4;
+    public static final int PUBLISHER_ON_SCREEN_CAPTURE_STATS = 5;
+
+    private static final String[] SESSION_EVENTS = {
+            "onError",
+            "onDisconnected",
+            "onStreamReceived",
+            "onConnected",
+            "onReconnected",
+            "onReconnecting",
+            "onArchiveStarted",
+            "onArchiveStopped",
+            "onConnectionCreated",
+            "onConnectionDestroyed",
+            "onStreamDropped",
+            "onSignalReceived",
+            "onStreamPropertyChanged",
+            "onStreamHasCaptionsChanged",
+            "onActiveSpeakerChanged",
+            "onAudioTelemetry",
+            "onAudioDeviceError"
+    };
+
+    private static final String[] PUBLISHER_EVENTS = {
+            "onStreamCreated",
+            "onStreamDestroyed",
+            "onError",
+            "onAudioLevelUpdated",
+            "onVoiceActivity",
+            "onScreenCaptureStats"
+    };
+
+    private final String sessionPreface;
+    private final String publisherPreface;
+    private final ConcurrentHashMap<String, String[]> sessionEventNames = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String[]> publisherEventNames = new ConcurrentHashMap<>();
+
+    public EventNameTable(String sessionPreface, String publisherPreface) {
+
+        this.sessionPreface = sessionPreface;
+        this.publisherPreface = publisherPreface;
+    }
+
+    public void registerSession(String sessionId) {
+
+        sessionEventNames.put(sessionId, buildNames(sessionId, sessionPreface, SESSION_EVENTS));
+    }
+
+    public void unregisterSession(String sessionId) {
+
+        sessionEventNames.remove(sessionId);
+    }
+
+    public String sessionEvent(String sessionId, int event) {
+
+        String[] names = sessionEventNames.get(sessionId);
+        if (names != null) {
+            return names[event];
+        }
+        // Late callback for a session that was already torn down.
+        return sessionId + ":" + sessionPreface + SESSION_EVENTS[event];
+    }
+
+    public void registerPublisher(String publisherId) {
+
+        publisherEventNames.put(publisherId, buildNames(publisherId, publisherPreface, PUBLISHER_EVENTS));
+    }
+
+    public void unregisterPublisher(String publisherId) {
+
+        publisherEventNames.remove(publisherId);
+    }
+
+    public String publisherEvent(String publisherId, int event) {
+
+        String[] names = publisherEventNames.get(publisherId);
+        if (names != null) {
+            return names[event];
+        }
+        return publisherId + ":" + publisherPreface + PUBLISHER_EVENTS[event];
+    }
+
+    private static String[] buildNames(String id, String preface, String[] events) {
+
+        String[] names = new String[events.length];
+        for (int i = 0; i < events.length; i++) {
+            names[i] = (id + ":" + preface + events[i]).intern();
+        }
+        return names;
+    }
+}
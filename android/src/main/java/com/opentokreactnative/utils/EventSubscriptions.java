@@ -0,0 +1,35 @@
+package com.opentokreactnative.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reference-counted set of event names that JS is listening to.
+ *
+ * Components register the same event name more than once (one per mounted
+ * component), so each name keeps a count and is only dropped when the last
+ * registration is removed. Lookups never lock, which keeps the per-event check
+ * on SDK threads cheap while the JS thread adds and removes names.
+ */
+public final class EventSubscriptions {
+
+    private final ConcurrentHashMap<String, Integer> counts = new ConcurrentHashMap<>();
+
+    public void add(String eventName) {
+
+        if (eventName != null) {
+            counts.merge(eventName, 1, Integer::sum);
+        }
+    }
+
+    public void remove(String eventName) {
+
+        if (eventName != null) {
+            counts.computeIfPresent(eventName, (key, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    public boolean contains(String eventName) {
+
+        return eventName != null && counts.containsKey(eventName);
+    }
+}
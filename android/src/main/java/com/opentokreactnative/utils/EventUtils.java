@@ -7,6 +7,9 @@ import com.opentok.android.OpentokError;
 import com.opentok.android.Session;
 import com.opentok.android.Stream;
 import com.opentok.android.SubscriberKit;
+import com.opentokreactnative.OTRN;
+
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class EventUtils {
 
@@ -44,6 +47,20 @@ public final class EventUtils {
         return streamInfo;
     }
 
+    public static WritableMap prepareCachedJSStreamMap(Stream stream, Session session) {
+
+        if (stream == null) {
+            return Arguments.createMap();
+        }
+        ConcurrentHashMap<String, StreamDescriptor> mStreamDescriptors = OTRN.sharedState.getStreamDescriptors();
+        StreamDescriptor descriptor = mStreamDescriptors.get(stream.getStreamId());
+        if (descriptor == null || !descriptor.getSessionId().equals(session.getSessionId())) {
+            descriptor = StreamDescriptor.from(stream, session);
+            mStreamDescriptors.put(stream.getStreamId(), descriptor);
+        }
+        return descriptor.toMap();
+    }
+
     public static WritableMap prepareJSErrorMap(OpentokError error) {
 
         WritableMap errorInfo = Arguments.createMap();
@@ -113,6 +130,31 @@ public final class EventUtils {
         return videoStats;
     }
 
+    public static WritableMap prepareAudioDelayMap(AudioDelayEstimator estimator) {
+
+        WritableMap delayInfo = Arguments.createMap();
+        delayInfo.putInt("delay", estimator.getDelay());
+        delayInfo.putDouble("deviation", estimator.getDeviation());
+        delayInfo.putDouble("lastMeasurement", estimator.getLastMeasurement());
+        delayInfo.putString("source", estimator.isTimestampBased() ? "timestamp" : "buffer");
+        delayInfo.putDouble("measurements", estimator.getMeasurements());
+        delayInfo.putDouble("outliers", estimator.getOutliers());
+        return delayInfo;
+    }
+
+    public static WritableMap prepareHistogramMap(Log2Histogram histogram) {
+
+        WritableMap histogramInfo = Arguments.createMap();
+        histogramInfo.putDouble("count", histogram.getCount());
+        histogramInfo.putDouble("min", histogram.getMin());
+        histogramInfo.putDouble("mean", histogram.getMean());
+        histogramInfo.putDouble("p50", histogram.getPercentile(50));
+        histogramInfo.putDouble("p95", histogram.getPercentile(95));
+        histogramInfo.putDouble("p99", histogram.getPercentile(99));
+        histogramInfo.putDouble("max", histogram.getMax());
+        return histogramInfo;
+    }
+
     public static WritableMap createError(String message) {
 
         WritableMap errorInfo = Arguments.createMap();
@@ -0,0 +1,143 @@
+package com.opentokreactnative.utils;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.os.Build;
+
+/**
+ * A fixed number of ARGB bitmaps, each with a canvas and a pixel array, reused by a video
+ * capturer across frames and size changes.
+ *
+ * A buffer that is large enough for a new size is reconfigured in place (Android 4.4+), and
+ * its pixel array is kept, instead of allocating a new bitmap and array for every size.
+ */
+public final class FramePool {
+
+    public static final class Frame {
+
+        private Bitmap bitmap;
+        private final Canvas canvas = new Canvas();
+        private int[] pixels = new int[0];
+        private int width = 0;
+        private int height = 0;
+        private boolean inUse = false;
+
+        public Bitmap getBitmap() {
+            return bitmap;
+        }
+
+        public Canvas getCanvas() {
+            return canvas;
+        }
+
+        /**
+         * @return at least width * height pixels. Only the first width * height are valid.
+         */
+        public int[] getPixels() {
+            return pixels;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        private long capacity() {
+            if (bitmap == null) {
+                return 0;
+            }
+            return Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT ? bitmap.getAllocationByteCount() : bitmap.getByteCount();
+        }
+    }
+
+    private final Frame[] frames;
+
+    public FramePool(int size) {
+
+        frames = new Frame[size];
+        for (int i = 0; i < size; i++) {
+            frames[i] = new Frame();
+        }
+    }
+
+    /**
+     * @return a frame of the given size, or null when every frame is in use.
+     */
+    public synchronized Frame acquire(int width, int height) {
+
+        Frame frame = null;
+        for (Frame candidate : frames) {
+            if (candidate.inUse) {
+                continue;
+            }
+            if (candidate.width == width && candidate.height == height && candidate.bitmap != null) {
+                frame = candidate;
+                break;
+            }
+            // Otherwise prefer the largest free frame, the most likely to be reconfigured.
+            if (frame == null || candidate.capacity() > frame.capacity()) {
+                frame = candidate;
+            }
+        }
+        if (frame == null) {
+            return null;
+        }
+        if (frame.width != width || frame.height != height || frame.bitmap == null) {
+            resize(frame, width, height);
+        }
+        frame.inUse = true;
+        return frame;
+    }
+
+    public synchronized void release(Frame frame) {
+        frame.inUse = false;
+    }
+
+    /**
+     * Recycles the bitmaps of the frames that are not in use. Frames still in use, e.g. by a
+     * pending asynchronous copy, are left to the garbage collector.
+     */
+    public synchronized void clear() {
+
+        for (Frame frame : frames) {
+            if (frame.inUse) {
+                continue;
+            }
+            if (frame.bitmap != null) {
+                frame.canvas.setBitmap(null);
+                frame.bitmap.recycle();
+                frame.bitmap = null;
+            }
+            frame.pixels = new int[0];
+            frame.width = 0;
+            frame.height = 0;
+        }
+    }
+
+    private static void resize(Frame frame, int width, int height) {
+
+        long needed = (long) width * height * 4;
+        if (frame.bitmap != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT
+                && frame.capacity() >= needed && frame.bitmap.isMutable()) {
+            frame.bitmap.reconfigure(width, height, Bitmap.Config.ARGB_8888);
+            // A reconfigured bitmap keeps the old contents.
+            frame.bitmap.eraseColor(Color.TRANSPARENT);
+        } else {
+            if (frame.bitmap != null) {
+                frame.canvas.setBitmap(null);
+                frame.bitmap.recycle();
+            }
+            frame.bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        }
+        frame.canvas.setBitmap(frame.bitmap);
+        if (frame.pixels.length < width * height) {
+            frame.pixels = new int[width * height];
+        }
+        frame.width = width;
+        frame.height = height;
+    }
+}
@@ -0,0 +1,94 @@
+package com.opentokreactnative.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * ARGB to I420 (BT.601, limited range) in plain Java, with the integer coefficients used by
+ * libyuv.
+ *
+ * The Y plane is width x height and the U and V planes are (width + 1) / 2 x (height + 1) / 2,
+ * all tightly packed. Each chroma sample averages a 2x2 block; with an odd width or height the
+ * last column or row of blocks averages the pixels that exist.
+ *
+ * Two rows are converted per pass into a scratch array of two luma rows and one row of each
+ * chroma plane, which is then copied into dst with three bulk puts. dst is a direct buffer, and
+ * single byte puts into it are bounds checked one by one; bulk puts are plain memory copies and
+ * the scratch rows stay in cache. See I420ConverterBenchmark.
+ *
+ * A converter must be used by a single thread.
+ */
+public final class I420Converter implements YuvConverter {
+
+    private byte[] rows = new byte[0];
+
+    @Override
+    public int frameSize(int width, int height) {
+        return width * height + 2 * ((width + 1) / 2) * ((height + 1) / 2);
+    }
+
+    @Override
+    public void convert(int[] argb, int stride, int width, int height, ByteBuffer dst) {
+
+        int chromaWidth = (width + 1) / 2;
+        if (rows.length < 2 * (width + chromaWidth)) {
+            rows = new byte[2 * (width + chromaWidth)];
+        }
+        byte[] out = rows;
+        int yBottom = width;
+        int u = 2 * width;
+        int v = u + chromaWidth;
+        int uOffset = width * height;
+        int vOffset = uOffset + chromaWidth * ((height + 1) / 2);
+
+        dst.clear();
+        for (int row = 0; row < height; row += 2) {
+            int top = row * stride;
+            boolean hasBottom = row + 1 < height;
+            int bottom = hasBottom ? top + stride : top;
+
+            for (int col = 0; col < width; col += 2) {
+                boolean hasRight = col + 1 < width;
+                int p0 = argb[top + col];
+                int p1 = hasRight ? argb[top + col + 1] : p0;
+                int p2 = argb[bottom + col];
+                int p3 = hasRight ? argb[bottom + col + 1] : p2;
+
+                int r0 = (p0 >> 16) & 0xFF, g0 = (p0 >> 8) & 0xFF, b0 = p0 & 0xFF;
+                int r1 = (p1 >> 16) & 0xFF, g1 = (p1 >> 8) & 0xFF, b1 = p1 & 0xFF;
+                int r2 = (p2 >> 16) & 0xFF, g2 = (p2 >> 8) & 0xFF, b2 = p2 & 0xFF;
+                int r3 = (p3 >> 16) & 0xFF, g3 = (p3 >> 8) & 0xFF, b3 = p3 & 0xFF;
+
+                // The bottom row of the last pass of an odd height is converted but not copied.
+                out[col] = luma(r0, g0, b0);
+                out[yBottom + col] = luma(r2, g2, b2);
+                if (hasRight) {
+                    out[col + 1] = luma(r1, g1, b1);
+                    out[yBottom + col + 1] = luma(r3, g3, b3);
+                }
+
+                // Missing pixels were duplicated above, so the block average is still exact.
+                int r = (r0 + r1 + r2 + r3 + 2) >> 2;
+                int g = (g0 + g1 + g2 + g3 + 2) >> 2;
+                int b = (b0 + b1 + b2 + b3 + 2) >> 2;
+                int index = col / 2;
+                out[u + index] = (byte) (((-38 * r - 74 * g + 112 * b + 128) >> 8) + 128);
+                out[v + index] = (byte) (((112 * r - 94 * g - 18 * b + 128) >> 8) + 128);
+            }
+
+            int chroma = (row / 2) * chromaWidth;
+            dst.position(row * width);
+            dst.put(out, 0, hasBottom ? 2 * width : width);
+            dst.position(uOffset + chroma);
+            dst.put(out, u, chromaWidth);
+            dst.position(vOffset + chroma);
+            dst.put(out, v, chromaWidth);
+        }
+
+        dst.position(frameSize(width, height));
+        dst.flip();
+    }
+
+    private static byte luma(int r, int g, int b) {
+        return (byte) (((66 * r + 129 * g + 25 * b + 128) >> 8) + 16);
+    }
+}
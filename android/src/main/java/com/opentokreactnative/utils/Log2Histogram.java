@@ -0,0 +1,72 @@
+package com.opentokreactnative.utils;
+
+/**
+ * Histogram of non-negative values in power-of-two buckets: bucket 0 holds 0 and
+ * bucket n holds values from 2^(n-1) to 2^n - 1.
+ *
+ * record() does not allocate and must be called from a single thread. Other threads
+ * may read the histogram at any time and can see a view that is a few values behind.
+ * Percentiles are reported as the upper bound of the bucket they fall in.
+ */
+public final class Log2Histogram {
+
+    private static final int BUCKETS = 32;
+
+    private final long[] counts = new long[BUCKETS];
+    private long sum = 0;
+    private long min = Long.MAX_VALUE;
+    private long max = 0;
+    private volatile long count = 0;
+
+    public void record(long value) {
+
+        if (value < 0) {
+            value = 0;
+        }
+        int bucket = Math.min(64 - Long.numberOfLeadingZeros(value), BUCKETS - 1);
+        counts[bucket]++;
+        sum += value;
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+        // Written last so readers see the other fields updated.
+        count++;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMin() {
+        return count > 0 ? min : 0;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        long total = count;
+        return total > 0 ? (double) sum / total : 0;
+    }
+
+    public long getPercentile(double percent) {
+
+        long total = count;
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max((long) Math.ceil(percent / 100 * total), 1);
+        long cumulative = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            cumulative += counts[bucket];
+            if (cumulative >= target) {
+                return Math.min(bucket == 0 ? 0 : (1L << bucket) - 1, max);
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,196 @@
+package com.opentokreactnative.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts 16-bit interleaved PCM between sample rates and between mono and stereo.
+ *
+ * Channels are mixed first (mono is duplicated, stereo is averaged), then each channel is
+ * resampled with a polyphase windowed-sinc filter. The rate ratio is reduced to upFactor /
+ * downFactor and one set of filter coefficients is precomputed per output phase, so
+ * conversion is exact over time and does not drift. The filter keeps state between calls,
+ * which delays the output by TAPS / 2 input frames.
+ *
+ * All buffers are allocated in the constructor; convert() does not allocate. Samples are
+ * read and written through the buffers' byte order, which should be the native order.
+ * A converter must be used by a single thread.
+ */
+public final class PcmConverter {
+
+    // Filter length, in input frames.
+    private static final int TAPS = 32;
+    // Largest reduced upFactor supported. 44.1 kHz <-> 48 kHz needs 147 or 160.
+    private static final int MAX_PHASES = 1024;
+    // Cutoff relative to the lower Nyquist frequency, leaving room for the transition band.
+    private static final double CUTOFF = 0.92;
+
+    private final int inChannels;
+    private final int outChannels;
+    private final int upFactor;
+    private final int downFactor;
+    private final boolean resampling;
+    private final float[] coefficients;
+    // Last TAPS mixed input frames per channel, stored twice so a window is always contiguous.
+    private final float[] history;
+    private int historyIndex = 0;
+    // Time of the next output frame, in 1/upFactor input frames after the newest input frame.
+    private int position = 0;
+
+    public PcmConverter(int inRate, int inChannels, int outRate, int outChannels) {
+
+        if (inRate <= 0 || outRate <= 0) {
+            throw new IllegalArgumentException("Invalid sample rates " + inRate + " -> " + outRate);
+        }
+        if (inChannels < 1 || inChannels > 2 || outChannels < 1 || outChannels > 2) {
+            throw new IllegalArgumentException("Only mono and stereo are supported");
+        }
+        int divisor = gcd(inRate, outRate);
+        this.inChannels = inChannels;
+        this.outChannels = outChannels;
+        this.upFactor = outRate / divisor;
+        this.downFactor = inRate / divisor;
+        if (upFactor > MAX_PHASES) {
+            throw new IllegalArgumentException("Unsupported rate ratio " + inRate + " -> " + outRate);
+        }
+        this.resampling = inRate != outRate;
+        this.coefficients = resampling ? createCoefficients(upFactor, downFactor) : new float[0];
+        this.history = new float[resampling ? outChannels * 2 * TAPS : 0];
+    }
+
+    public boolean isPassthrough() {
+        return !resampling && inChannels == outChannels;
+    }
+
+    /**
+     * @return the largest number of frames convert() can produce from inputFrames frames.
+     */
+    public int maxOutputFrames(int inputFrames) {
+        return (int) (((long) inputFrames * upFactor + downFactor - 1) / downFactor) + 1;
+    }
+
+    public void reset() {
+
+        for (int i = 0; i < history.length; i++) {
+            history[i] = 0;
+        }
+        historyIndex = 0;
+        position = 0;
+    }
+
+    /**
+     * Converts the first inputFrames frames of src into dst, which is cleared first and
+     * flipped after. dst must hold maxOutputFrames(inputFrames) frames.
+     *
+     * @return the number of frames written to dst.
+     */
+    public int convert(ByteBuffer src, int inputFrames, ByteBuffer dst) {
+
+        dst.clear();
+        int outputFrames = 0;
+        for (int frame = 0; frame < inputFrames; frame++) {
+            int offset = frame * inChannels * 2;
+            float left = src.getShort(offset);
+            float right = inChannels == 2 ? src.getShort(offset + 2) : left;
+            if (outChannels == 1 && inChannels == 2) {
+                left = (left + right) * 0.5f;
+            }
+            if (!resampling) {
+                putFrame(dst, outputFrames++, left, right);
+                continue;
+            }
+
+            push(left, right);
+            while (position < upFactor) {
+                int tapOffset = position * TAPS;
+                float outLeft = filter(0, tapOffset);
+                float outRight = outChannels == 2 ? filter(2 * TAPS, tapOffset) : outLeft;
+                putFrame(dst, outputFrames++, outLeft, outRight);
+                position += downFactor;
+            }
+            position -= upFactor;
+        }
+        dst.limit(outputFrames * outChannels * 2);
+        return outputFrames;
+    }
+
+    private void push(float left, float right) {
+
+        historyIndex = historyIndex == 0 ? TAPS - 1 : historyIndex - 1;
+        history[historyIndex] = left;
+        history[historyIndex + TAPS] = left;
+        if (outChannels == 2) {
+            history[2 * TAPS + historyIndex] = right;
+            history[2 * TAPS + historyIndex + TAPS] = right;
+        }
+    }
+
+    // The window starts with the newest frame; coefficients are ordered the same way.
+    private float filter(int channelOffset, int tapOffset) {
+
+        int start = channelOffset + historyIndex;
+        float sum = 0;
+        for (int tap = 0; tap < TAPS; tap++) {
+            sum += history[start + tap] * coefficients[tapOffset + tap];
+        }
+        return sum;
+    }
+
+    private void putFrame(ByteBuffer dst, int frame, float left, float right) {
+
+        int offset = frame * outChannels * 2;
+        dst.putShort(offset, clip(left));
+        if (outChannels == 2) {
+            dst.putShort(offset + 2, clip(right));
+        }
+    }
+
+    private static short clip(float sample) {
+
+        int value = Math.round(sample);
+        if (value > Short.MAX_VALUE) {
+            return Short.MAX_VALUE;
+        }
+        if (value < Short.MIN_VALUE) {
+            return Short.MIN_VALUE;
+        }
+        return (short) value;
+    }
+
+    /*
+     * Output phase p lies p / upFactor frames after input frame (newest - TAPS / 2), so tap j,
+     * which holds frame (newest - j), is (TAPS / 2 - j - p / upFactor) frames away.
+     */
+    private static float[] createCoefficients(int upFactor, int downFactor) {
+
+        double cutoff = CUTOFF * Math.min(1.0, (double) upFactor / downFactor);
+        float[] coefficients = new float[upFactor * TAPS];
+        for (int phase = 0; phase < upFactor; phase++) {
+            double sum = 0;
+            for (int tap = 0; tap < TAPS; tap++) {
+                double distance = TAPS / 2 - tap - (double) phase / upFactor;
+                double x = Math.PI * cutoff * distance;
+                double sinc = x == 0 ? 1 : Math.sin(x) / x;
+                double window = 0.42
+                        + 0.5 * Math.cos(Math.PI * distance / (TAPS / 2))
+                        + 0.08 * Math.cos(2 * Math.PI * distance / (TAPS / 2));
+                coefficients[phase * TAPS + tap] = (float) (sinc * window);
+                sum += sinc * window;
+            }
+            // Unity gain at DC for every phase.
+            for (int tap = 0; tap < TAPS; tap++) {
+                coefficients[phase * TAPS + tap] /= sum;
+            }
+        }
+        return coefficients;
+    }
+
+    private static int gcd(int a, int b) {
+
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
@@ -0,0 +1,107 @@
+package com.opentokreactnative.utils;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free single-producer/single-consumer ring buffer of PCM bytes.
+ *
+ * Only one thread may call write() and only one other thread may call read() and
+ * skip(). The cursors only ever grow; the producer publishes data by advancing the
+ * write cursor after copying, and the consumer frees space by advancing the read
+ * cursor. Each side copies through its own view of the backing direct buffer, so
+ * nothing is allocated after construction.
+ */
+public final class PcmRingBuffer {
+
+    private final int capacity;
+    private final ByteBuffer writeView;
+    private final ByteBuffer readView;
+    private final AtomicLong writePosition = new AtomicLong();
+    private final AtomicLong readPosition = new AtomicLong();
+
+    public PcmRingBuffer(int capacity) {
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(capacity);
+        this.capacity = capacity;
+        this.writeView = buffer.duplicate();
+        this.readView = buffer.duplicate();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int availableToRead() {
+        return (int) (writePosition.get() - readPosition.get());
+    }
+
+    public int availableToWrite() {
+        return capacity - availableToRead();
+    }
+
+    /**
+     * Copies the first length bytes of src into the ring. Producer thread only.
+     *
+     * @return false, without copying anything, when there is not enough free space.
+     */
+    public boolean write(ByteBuffer src, int length) {
+
+        long write = writePosition.get();
+        if (capacity - (int) (write - readPosition.get()) < length) {
+            return false;
+        }
+        int offset = (int) (write % capacity);
+        int first = Math.min(length, capacity - offset);
+        src.clear();
+        src.limit(first);
+        writeView.clear();
+        writeView.position(offset);
+        writeView.put(src);
+        if (first < length) {
+            src.limit(length);
+            writeView.position(0);
+            writeView.put(src);
+        }
+        writePosition.lazySet(write + length);
+        return true;
+    }
+
+    /**
+     * Copies length bytes from the ring to the start of dst. Consumer thread only.
+     *
+     * @return false, without copying anything, when fewer than length bytes are available.
+     */
+    public boolean read(ByteBuffer dst, int length) {
+
+        long read = readPosition.get();
+        if ((int) (writePosition.get() - read) < length) {
+            return false;
+        }
+        int offset = (int) (read % capacity);
+        int first = Math.min(length, capacity - offset);
+        dst.clear();
+        readView.clear();
+        readView.position(offset);
+        readView.limit(offset + first);
+        dst.put(readView);
+        if (first < length) {
+            readView.position(0);
+            readView.limit(length - first);
+            dst.put(readView);
+        }
+        dst.flip();
+        readPosition.lazySet(read + length);
+        return true;
+    }
+
+    /**
+     * Drops up to length bytes. Consumer thread only.
+     */
+    public void skip(int length) {
+
+        long read = readPosition.get();
+        int available = (int) (writePosition.get() - read);
+        readPosition.lazySet(read + Math.min(length, available));
+    }
+}
@@ -0,0 +1,143 @@
+package com.opentokreactnative.utils;
+
+import java.util.Arrays;
+
+/**
+ * Sliding window over cumulative network stats counters (bytes, packets received,
+ * packets lost) as reported by the SDK stats listeners.
+ *
+ * Samples are kept in a ring buffer of primitive arrays. Derived values cover the
+ * whole window: overall bitrate and packet loss, plus the min, average, max and
+ * percentiles of the per-sample bitrate. Nothing is allocated after construction.
+ */
+public final class StatsWindow {
+
+    private final int capacity;
+    private final double[] timestamps;
+    private final long[] bytes;
+    private final long[] packetsReceived;
+    private final long[] packetsLost;
+    private final double[] bitrates;
+    private int head = 0;
+    private int count = 0;
+
+    // Results of the last compute() call.
+    private double bitrate;
+    private double packetLossPercent;
+    private double bitrateMin;
+    private double bitrateAvg;
+    private double bitrateMax;
+    private double bitrateP50;
+    private double bitrateP95;
+    private int intervals;
+
+    public StatsWindow(int capacity) {
+
+        this.capacity = Math.max(capacity, 2);
+        this.timestamps = new double[this.capacity];
+        this.bytes = new long[this.capacity];
+        this.packetsReceived = new long[this.capacity];
+        this.packetsLost = new long[this.capacity];
+        this.bitrates = new double[this.capacity];
+    }
+
+    public synchronized void add(double timestamp, long bytesReceived, long received, long lost) {
+
+        if (count > 0) {
+            int last = (head + capacity - 1) % capacity;
+            // Counters went backwards (e.g. the subscriber reconnected): start over.
+            if (timestamp <= timestamps[last] || bytesReceived < bytes[last]) {
+                count = 0;
+            }
+        }
+        timestamps[head] = timestamp;
+        bytes[head] = bytesReceived;
+        packetsReceived[head] = received;
+        packetsLost[head] = lost;
+        head = (head + 1) % capacity;
+        if (count < capacity) {
+            count++;
+        }
+    }
+
+    public synchronized void reset() {
+
+        count = 0;
+        head = 0;
+    }
+
+    /**
+     * Recomputes the derived values.
+     *
+     * @return false when there are fewer than two samples in the window.
+     */
+    public synchronized boolean compute() {
+
+        intervals = count - 1;
+        if (intervals < 1) {
+            return false;
+        }
+        int oldest = (head + capacity - count) % capacity;
+        int newest = (head + capacity - 1) % capacity;
+
+        double seconds = (timestamps[newest] - timestamps[oldest]) / 1000;
+        bitrate = seconds > 0 ? (bytes[newest] - bytes[oldest]) * 8 / seconds : 0;
+        long received = packetsReceived[newest] - packetsReceived[oldest];
+        long lost = packetsLost[newest] - packetsLost[oldest];
+        packetLossPercent = received + lost > 0 ? lost * 100.0 / (received + lost) : 0;
+
+        double sum = 0;
+        for (int i = 0; i < intervals; i++) {
+            int from = (oldest + i) % capacity;
+            int to = (from + 1) % capacity;
+            double intervalSeconds = (timestamps[to] - timestamps[from]) / 1000;
+            bitrates[i] = intervalSeconds > 0 ? (bytes[to] - bytes[from]) * 8 / intervalSeconds : 0;
+            sum += bitrates[i];
+        }
+        Arrays.sort(bitrates, 0, intervals);
+        bitrateMin = bitrates[0];
+        bitrateMax = bitrates[intervals - 1];
+        bitrateAvg = sum / intervals;
+        bitrateP50 = percentile(50);
+        bitrateP95 = percentile(95);
+        return true;
+    }
+
+    private double percentile(int percent) {
+
+        int index = (int) Math.ceil(percent / 100.0 * intervals) - 1;
+        return bitrates[Math.min(Math.max(index, 0), intervals - 1)];
+    }
+
+    public synchronized double getBitrate() {
+        return bitrate;
+    }
+
+    public synchronized double getPacketLossPercent() {
+        return packetLossPercent;
+    }
+
+    public synchronized double getBitrateMin() {
+        return bitrateMin;
+    }
+
+    public synchronized double getBitrateAvg() {
+        return bitrateAvg;
+    }
+
+    public synchronized double getBitrateMax() {
+        return bitrateMax;
+    }
+
+    public synchronized double getBitrateP50() {
+        return bitrateP50;
+    }
+
+    public synchronized double getBitrateP95() {
+        return bitrateP95;
+    }
+
+    public synchronized int getIntervals() {
+        return intervals;
+    }
+}
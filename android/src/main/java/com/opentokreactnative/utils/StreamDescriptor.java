@@ -0,0 +1,79 @@
+package com.opentokreactnative.utils;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+import com.opentok.android.Connection;
+import com.opentok.android.Session;
+import com.opentok.android.Stream;
+
+/**
+ * Immutable snapshot of the stream fields sent to JS.
+ *
+ * Built once per stream and reused for every subscriber event, so the SDK getters
+ * and the creation time formatting only run again after a stream property changes.
+ */
+public final class StreamDescriptor {
+
+    private final String streamId;
+    private final int height;
+    private final int width;
+    private final String creationTime;
+    private final String connectionId;
+    private final String connectionCreationTime;
+    private final String connectionData;
+    private final String sessionId;
+    private final String name;
+    private final boolean hasAudio;
+    private final boolean hasVideo;
+    private final String videoType;
+
+    private StreamDescriptor(Stream stream, Session session) {
+
+        Connection connection = stream.getConnection();
+        this.streamId = stream.getStreamId();
+        this.height = stream.getVideoHeight();
+        this.width = stream.getVideoWidth();
+        this.creationTime = stream.getCreationTime().toString();
+        this.connectionId = connection.getConnectionId();
+        this.connectionCreationTime = connection.getCreationTime().toString();
+        this.connectionData = connection.getData();
+        this.sessionId = session.getSessionId();
+        this.name = stream.getName();
+        this.hasAudio = stream.hasAudio();
+        this.hasVideo = stream.hasVideo();
+        this.videoType = stream.getStreamVideoType().equals(Stream.StreamVideoType.StreamVideoTypeScreen)
+                ? "screen" : "camera";
+    }
+
+    public static StreamDescriptor from(Stream stream, Session session) {
+
+        return new StreamDescriptor(stream, session);
+    }
+
+    public String getSessionId() {
+
+        return sessionId;
+    }
+
+    public WritableMap toMap() {
+
+        WritableMap connectionInfo = Arguments.createMap();
+        connectionInfo.putString("connectionId", connectionId);
+        connectionInfo.putString("creationTime", connectionCreationTime);
+        connectionInfo.putString("data", connectionData);
+
+        WritableMap streamInfo = Arguments.createMap();
+        streamInfo.putString("streamId", streamId);
+        streamInfo.putInt("height", height);
+        streamInfo.putInt("width", width);
+        streamInfo.putString("creationTime", creationTime);
+        streamInfo.putString("connectionId", connectionId);
+        streamInfo.putString("sessionId", sessionId);
+        streamInfo.putMap("connection", connectionInfo);
+        streamInfo.putString("name", name);
+        streamInfo.putBoolean("hasAudio", hasAudio);
+        streamInfo.putBoolean("hasVideo", hasVideo);
+        streamInfo.putString("videoType", videoType);
+        return streamInfo;
+    }
+}
@@ -1,9 +1,7 @@
 package com.opentokreactnative.utils;
 
 import com.opentok.android.OpentokError;
-import com.opentok.android.Publisher;
 import com.opentok.android.PublisherKit;
-import com.opentok.android.Subscriber;
 import com.opentok.android.SubscriberKit;
 import com.opentok.android.Session.Builder.TransportPolicy;
 import com.opentok.android.Session.Builder.IncludeServers;
@@ -14,7 +12,6 @@ import com.opentokreactnative.OTRN;
 import com.facebook.react.bridge.ReadableArray;
 
 import java.util.ArrayList;
-import java.util.Map;
 import java.util.List;
 
 public final class Utils {
@@ -33,38 +30,14 @@ public final class Utils {
         }
     }
 
-    public static boolean contains(ArrayList array, String value) {
-
-        for (int i = 0; i < array.size(); i++) {
-            if (array.get(i).equals(value)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     public static String getPublisherId(PublisherKit publisherKit) {
 
-        Map<String, Publisher> publishers = OTRN.sharedState.getPublishers();
-        for (Map.Entry<String, Publisher> entry: publishers.entrySet()) {
-            Publisher mPublisher = entry.getValue();
-            if (mPublisher.equals(publisherKit)) {
-                return entry.getKey();
-            }
-        }
-        return "";
+        return OTRN.sharedState.getPublisherId(publisherKit);
     }
 
     public static String getStreamIdBySubscriber(SubscriberKit subscriberKit) {
 
-        Map<String, Subscriber> subscribers = OTRN.sharedState.getSubscribers();
-        for (Map.Entry<String, Subscriber> entry: subscribers.entrySet()) {
-            Subscriber mSubcriber = entry.getValue();
-            if (mSubcriber.equals(subscriberKit)) {
-                return entry.getKey();
-            }
-        }
-        return "";
+        return OTRN.sharedState.getStreamIdBySubscriber(subscriberKit);
     }
 
     public static IncludeServers sanitizeIncludeServer(String value) {
@@ -0,0 +1,110 @@
+package com.opentokreactnative.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Loads the audio of a 16-bit PCM WAV file into memory.
+ *
+ * The samples are copied into a direct buffer in the native byte order, so they can be handed
+ * to the audio bus as they are. Chunks other than "fmt " and "data" are skipped.
+ */
+public final class WavFileReader {
+
+    private static final int FORMAT_PCM = 1;
+    private static final int FORMAT_EXTENSIBLE = 0xFFFE;
+
+    private final int sampleRate;
+    private final int channels;
+    private final ByteBuffer data;
+
+    public WavFileReader(File file) throws IOException {
+
+        ByteBuffer contents;
+        try (FileChannel channel = new FileInputStream(file).getChannel()) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(file + " is too large");
+            }
+            contents = ByteBuffer.allocate((int) channel.size());
+            while (contents.hasRemaining() && channel.read(contents) >= 0) {
+                // Keep reading until the file is loaded.
+            }
+        }
+        contents.flip();
+        contents.order(ByteOrder.LITTLE_ENDIAN);
+        if (contents.remaining() < 12 || contents.getInt(0) != fourCc("RIFF") || contents.getInt(8) != fourCc("WAVE")) {
+            throw new IOException(file + " is not a WAV file");
+        }
+
+        int rate = 0;
+        int channelCount = 0;
+        ByteBuffer samples = null;
+        int position = 12;
+        while (position + 8 <= contents.limit() && samples == null) {
+            int id = contents.getInt(position);
+            int size = contents.getInt(position + 4);
+            int start = position + 8;
+            if (size < 0 || size > contents.limit() - start) {
+                // Streamed files may leave the data size unset; use the rest of the file.
+                size = contents.limit() - start;
+            }
+            if (id == fourCc("fmt ")) {
+                // size was clamped above, so this also catches a file cut off in the chunk.
+                if (size < 16) {
+                    throw new IOException(file + " has a truncated format chunk");
+                }
+                int format = contents.getShort(start) & 0xFFFF;
+                channelCount = contents.getShort(start + 2);
+                rate = contents.getInt(start + 4);
+                int bitsPerSample = contents.getShort(start + 14);
+                if ((format != FORMAT_PCM && format != FORMAT_EXTENSIBLE) || bitsPerSample != 16) {
+                    throw new IOException(file + " is not 16-bit PCM");
+                }
+                if (channelCount < 1 || channelCount > 2 || rate <= 0) {
+                    throw new IOException(file + " must be mono or stereo");
+                }
+            } else if (id == fourCc("data")) {
+                if (rate == 0) {
+                    throw new IOException(file + " has no format chunk");
+                }
+                int frameSize = channelCount * 2;
+                int length = size - size % frameSize;
+                samples = ByteBuffer.allocateDirect(length).order(ByteOrder.nativeOrder());
+                for (int offset = 0; offset < length; offset += 2) {
+                    samples.putShort(offset, contents.getShort(start + offset));
+                }
+            }
+            position = start + size + (size & 1);
+        }
+        if (samples == null) {
+            throw new IOException(file + " has no audio data");
+        }
+        this.sampleRate = rate;
+        this.channels = channelCount;
+        this.data = samples;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    /**
+     * @return the samples, in the native byte order. Callers should use absolute reads or a
+     * duplicate() so the buffer can be shared.
+     */
+    public ByteBuffer getData() {
+        return data;
+    }
+
+    private static int fourCc(String id) {
+        return id.charAt(0) | id.charAt(1) << 8 | id.charAt(2) << 16 | id.charAt(3) << 24;
+    }
+}
@@ -0,0 +1,158 @@
+package com.opentokreactnative.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes 16-bit PCM to a WAV file from a real-time thread without blocking it.
+ *
+ * offer() only copies into a preallocated lock-free ring buffer; a background thread drains it
+ * through a FileChannel every DRAIN_INTERVAL_NS. When the writer falls behind, offered audio
+ * is dropped and counted instead of waiting. The WAV sizes are filled in by close().
+ *
+ * offer() must be called from a single thread. close() may be called from any other thread.
+ */
+public final class WavFileWriter {
+
+    private static final int HEADER_SIZE = 44;
+    private static final long DRAIN_INTERVAL_NS = 20 * 1000000L;
+    private static final long CLOSE_TIMEOUT_MS = 2000;
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    private final File file;
+    private final int sampleRate;
+    private final int channels;
+    private final PcmRingBuffer ring;
+    private final FileChannel channel;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+    private volatile IOException error;
+    private volatile long bytesWritten = 0;
+    private volatile long bytesDropped = 0;
+
+    /**
+     * @param bufferSize bytes of audio that can be queued before offer() starts dropping.
+     */
+    public WavFileWriter(File file, int sampleRate, int channels, int bufferSize) throws IOException {
+
+        this.file = file;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.ring = new PcmRingBuffer(bufferSize);
+        this.channel = new FileOutputStream(file).getChannel();
+        writeHeader(0);
+        channel.position(HEADER_SIZE);
+        this.writerThread = new Thread(this::drain, "OTWavWriter");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public long getBytesDropped() {
+        return bytesDropped;
+    }
+
+    public IOException getError() {
+        return error;
+    }
+
+    /**
+     * Queues the first length bytes of src. Leaves src with position 0 and limit length.
+     *
+     * @return false when the audio was dropped because the queue is full or the file failed.
+     */
+    public boolean offer(ByteBuffer src, int length) {
+
+        boolean queued = running && error == null && ring.write(src, length);
+        src.position(0);
+        src.limit(length);
+        if (!queued) {
+            bytesDropped += length;
+        }
+        return queued;
+    }
+
+    /**
+     * Writes the queued audio, completes the WAV header and closes the file.
+     */
+    public void close() throws IOException {
+
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(CLOSE_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            if (error == null) {
+                writeHeader(bytesWritten);
+            }
+        } finally {
+            channel.close();
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private void drain() {
+
+        ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_SIZE);
+        while (true) {
+            int available = ring.availableToRead();
+            if (available == 0) {
+                if (!running) {
+                    return;
+                }
+                LockSupport.parkNanos(this, DRAIN_INTERVAL_NS);
+                continue;
+            }
+            int length = Math.min(available, CHUNK_SIZE);
+            ring.read(chunk, length);
+            try {
+                while (chunk.hasRemaining()) {
+                    channel.write(chunk);
+                }
+            } catch (IOException e) {
+                error = e;
+                return;
+            }
+            bytesWritten += length;
+        }
+    }
+
+    private void writeHeader(long dataSize) throws IOException {
+
+        int blockAlign = channels * 2;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(new byte[]{'R', 'I', 'F', 'F'});
+        header.putInt((int) Math.min(dataSize + HEADER_SIZE - 8, 0xFFFFFFFFL));
+        header.put(new byte[]{'W', 'A', 'V', 'E', 'f', 'm', 't', ' '});
+        header.putInt(16);
+        header.putShort((short) 1);
+        header.putShort((short) channels);
+        header.putInt(sampleRate);
+        header.putInt(sampleRate * blockAlign);
+        header.putShort((short) blockAlign);
+        header.putShort((short) 16);
+        header.put(new byte[]{'d', 'a', 't', 'a'});
+        header.putInt((int) Math.min(dataSize, 0xFFFFFFFFL - HEADER_SIZE));
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.opentokreactnative.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts ARGB pixels, as returned by Bitmap.getPixels, to a planar YUV frame for the SDK.
+ */
+public interface YuvConverter {
+
+    /**
+     * @return the size in bytes of a frame of the given size.
+     */
+    int frameSize(int width, int height);
+
+    /**
+     * Converts width x height pixels of argb, whose rows are stride pixels apart, into dst,
+     * which is cleared first and flipped after. dst must hold frameSize(width, height) bytes.
+     */
+    void convert(int[] argb, int stride, int width, int height, ByteBuffer dst);
+}
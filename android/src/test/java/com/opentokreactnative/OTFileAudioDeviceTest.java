@@ -0,0 +1,217 @@
+package com.opentokreactnative;
+
+import com.opentokreactnative.utils.WavFileReader;
+import com.opentokreactnative.utils.WavFixtures;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives the file audio device with WAV fixtures, with an in-memory audio bus in place of the
+ * SDK's.
+ */
+public class OTFileAudioDeviceTest {
+
+    private static final long TIMEOUT_MS = 5000;
+
+    private File captureFile;
+    private File renderFile;
+
+    @Before
+    public void setUp() throws IOException {
+        captureFile = File.createTempFile("capture", ".wav");
+        renderFile = File.createTempFile("render", ".wav");
+    }
+
+    @After
+    public void tearDown() {
+        captureFile.delete();
+        renderFile.delete();
+    }
+
+    @Test
+    public void capturesTheFileInALoopIn10msBlocks() throws Exception {
+
+        // 1.5 blocks at 16 kHz, so the third block wraps around.
+        short[] samples = WavFixtures.ramp(240);
+        WavFixtures.write(captureFile, 16000, 1, samples);
+        TestDevice device = new TestDevice(captureFile, null);
+
+        assertEquals(16000, device.getCaptureSettings().getSampleRate());
+        assertEquals(1, device.getCaptureSettings().getNumChannels());
+
+        List<short[]> blocks = device.capture(4);
+        for (int block = 0; block < blocks.size(); block++) {
+            assertEquals(160, blocks.get(block).length);
+            for (int i = 0; i < 160; i++) {
+                assertEquals("block " + block + " sample " + i,
+                        samples[(block * 160 + i) % samples.length], blocks.get(block)[i]);
+            }
+        }
+        assertTrue(device.getTelemetry().capture.calls >= 4);
+    }
+
+    @Test
+    public void mixesStereoFilesToMono() throws Exception {
+
+        short[] samples = new short[2 * 480];
+        for (int i = 0; i < 480; i++) {
+            samples[2 * i] = (short) (i * 10);
+            samples[2 * i + 1] = (short) (i * 10 + 100);
+        }
+        WavFixtures.write(captureFile, 48000, 2, samples);
+        TestDevice device = new TestDevice(captureFile, null);
+
+        assertEquals(48000, device.getCaptureSettings().getSampleRate());
+        short[] block = device.capture(1).get(0);
+        assertEquals(480, block.length);
+        for (int i = 0; i < 480; i++) {
+            assertEquals(i * 10 + 50, block[i]);
+        }
+    }
+
+    @Test
+    public void capturesSilenceWithoutAFile() throws Exception {
+
+        TestDevice device = new TestDevice(null, null);
+
+        for (short[] block : device.capture(2)) {
+            assertEquals(480, block.length);
+            for (short sample : block) {
+                assertEquals(0, sample);
+            }
+        }
+    }
+
+    @Test
+    public void appliesTheCaptureProcessingChain() throws Exception {
+
+        WavFixtures.write(captureFile, 48000, 1, WavFixtures.ramp(480));
+        TestDevice device = new TestDevice(captureFile, null);
+        List<OTAudioProcessor> processors = new ArrayList<>();
+        processors.add((pcm, frames) -> {
+            for (int i = 0; i < frames; i++) {
+                pcm.putShort(i * 2, (short) 42);
+            }
+        });
+        device.setCaptureProcessing(new OTAudioProcessingChain(processors));
+
+        for (short sample : device.capture(1).get(0)) {
+            assertEquals(42, sample);
+        }
+    }
+
+    @Test
+    public void writesRenderedAudioToTheFile() throws Exception {
+
+        TestDevice device = new TestDevice(null, renderFile);
+
+        int frames = device.render(5, (short) 1234);
+
+        WavFileReader reader = new WavFileReader(renderFile);
+        assertEquals(48000, reader.getSampleRate());
+        assertEquals(2, reader.getChannels());
+        ByteBuffer data = reader.getData();
+        assertEquals(frames * 4, data.limit());
+        for (int i = 0; i < data.limit(); i += 2) {
+            assertEquals(1234, data.getShort(i));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsCaptureFilesThatAreNotWav() throws IOException {
+
+        WavFixtures.write(captureFile, "not a wav file at all".getBytes(StandardCharsets.US_ASCII));
+        new OTFileAudioDevice(captureFile, null);
+    }
+
+    private static final class TestDevice extends OTFileAudioDevice {
+
+        private final List<short[]> captured = new ArrayList<>();
+        private volatile short renderValue = 0;
+        private int renderBlocks = 0;
+        private int renderFrames = 0;
+
+        TestDevice(File captureFile, File renderFile) throws IOException {
+            super(captureFile, renderFile);
+        }
+
+        @Override
+        void writeCaptureData(ByteBuffer data, int frames) {
+
+            short[] block = new short[frames];
+            for (int i = 0; i < frames; i++) {
+                block[i] = data.getShort(i * 2);
+            }
+            synchronized (captured) {
+                captured.add(block);
+                captured.notifyAll();
+            }
+        }
+
+        @Override
+        int readRenderData(ByteBuffer data, int frames) {
+
+            for (int i = 0; i < frames * 2; i++) {
+                data.putShort(i * 2, renderValue);
+            }
+            synchronized (this) {
+                renderBlocks++;
+                renderFrames += frames;
+                notifyAll();
+            }
+            return frames;
+        }
+
+        List<short[]> capture(int blocks) throws InterruptedException {
+
+            assertTrue(initCapturer());
+            assertTrue(startCapturer());
+            long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+            synchronized (captured) {
+                while (captured.size() < blocks && System.currentTimeMillis() < deadline) {
+                    captured.wait(TIMEOUT_MS);
+                }
+            }
+            stopCapturer();
+            destroyCapturer();
+            synchronized (captured) {
+                assertTrue(captured.size() >= blocks);
+                return new ArrayList<>(captured.subList(0, blocks));
+            }
+        }
+
+        /**
+         * @return the number of frames rendered.
+         */
+        int render(int blocks, short value) throws InterruptedException {
+
+            renderValue = value;
+            assertTrue(initRenderer());
+            assertTrue(startRenderer());
+            long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+            synchronized (this) {
+                while (renderBlocks < blocks && System.currentTimeMillis() < deadline) {
+                    wait(TIMEOUT_MS);
+                }
+            }
+            stopRenderer();
+            destroyRenderer();
+            synchronized (this) {
+                assertTrue(renderBlocks >= blocks);
+                return renderFrames;
+            }
+        }
+    }
+}
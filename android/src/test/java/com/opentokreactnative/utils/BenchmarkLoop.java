@@ -0,0 +1,28 @@
+package com.opentokreactnative.utils;
+
+/**
+ * The warm-up and timing loop of the benchmark harnesses in this package. The harnesses are
+ * not unit tests: run their main() from the IDE, or with java and the unit test classpath.
+ */
+final class BenchmarkLoop {
+
+    private BenchmarkLoop() {
+    }
+
+    /**
+     * Runs iteration warmup times so the JIT compiles it, then times measured more runs.
+     *
+     * @return the mean time of one iteration, in nanoseconds.
+     */
+    static double nanosPerIteration(Runnable iteration, int warmup, int measured) {
+
+        for (int i = 0; i < warmup; i++) {
+            iteration.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < measured; i++) {
+            iteration.run();
+        }
+        return (double) (System.nanoTime() - start) / measured;
+    }
+}
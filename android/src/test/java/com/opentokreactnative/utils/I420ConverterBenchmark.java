@@ -0,0 +1,40 @@
+package com.opentokreactnative.utils;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Converts noise frames at phone screen sizes, the last one odd in both directions, into a
+ * direct buffer as the screen capturer does. Noise keeps the pixels from being uniform, and
+ * the ms per frame can be set against the 33 ms budget of a 30 fps share.
+ */
+public class I420ConverterBenchmark {
+
+    private static final int WARMUP_FRAMES = 300;
+    private static final int MEASURED_FRAMES = 1000;
+
+    public static void main(String[] args) {
+
+        run(720, 1280);
+        run(1080, 1920);
+        run(1080, 2400);
+        run(1439, 3119);
+    }
+
+    private static void run(int width, int height) {
+
+        Random random = new Random(width);
+        int[] argb = new int[width * height];
+        for (int i = 0; i < argb.length; i++) {
+            argb[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        I420Converter converter = new I420Converter();
+        ByteBuffer dst = ByteBuffer.allocateDirect(converter.frameSize(width, height));
+
+        double nanos = BenchmarkLoop.nanosPerIteration(() -> converter.convert(argb, width, width, height, dst),
+                WARMUP_FRAMES, MEASURED_FRAMES);
+
+        System.out.printf("%dx%d: %.2f ms per frame, %.0f Mpixel/s%n",
+                width, height, nanos / 1e6, width * height * 1e3 / nanos);
+    }
+}
@@ -0,0 +1,188 @@
+package com.opentokreactnative.utils;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class I420ConverterTest {
+
+    private static final int WHITE = 0xFFFFFFFF;
+    private static final int BLACK = 0xFF000000;
+    private static final int RED = 0xFFFF0000;
+    private static final int GREEN = 0xFF00FF00;
+    private static final int BLUE = 0xFF0000FF;
+
+    @Test
+    public void frameSizeRoundsChromaUp() {
+
+        I420Converter converter = new I420Converter();
+        assertEquals(4 * 2 + 2 * 2 * 1, converter.frameSize(4, 2));
+        assertEquals(3 * 3 + 2 * 2 * 2, converter.frameSize(3, 3));
+        assertEquals(1 + 2, converter.frameSize(1, 1));
+    }
+
+    @Test
+    public void convertsPrimariesWithLimitedRange() {
+
+        assertSolid(WHITE, 235, 128, 128);
+        assertSolid(BLACK, 16, 128, 128);
+        assertSolid(RED, 82, 90, 240);
+        assertSolid(GREEN, 144, 54, 34);
+        assertSolid(BLUE, 41, 240, 110);
+    }
+
+    @Test
+    public void averagesEachBlockForChroma() {
+
+        int[] argb = {RED, BLUE, BLUE, RED};
+        ByteBuffer dst = ByteBuffer.allocateDirect(6);
+        new I420Converter().convert(argb, 2, 2, 2, dst);
+
+        // r = (255 + 0 + 0 + 255 + 2) >> 2 = 128, b = 128, g = 0.
+        assertEquals(82, dst.get(0) & 0xFF);
+        assertEquals(41, dst.get(1) & 0xFF);
+        assertEquals(41, dst.get(2) & 0xFF);
+        assertEquals(82, dst.get(3) & 0xFF);
+        assertEquals(165, dst.get(4) & 0xFF);
+        assertEquals(175, dst.get(5) & 0xFF);
+    }
+
+    @Test
+    public void matchesReferenceForEvenSizes() {
+
+        assertMatchesReference(16, 8, 16, 1);
+    }
+
+    @Test
+    public void matchesReferenceForOddSizes() {
+
+        assertMatchesReference(7, 5, 7, 2);
+        assertMatchesReference(1, 1, 1, 3);
+        assertMatchesReference(1, 6, 1, 4);
+        assertMatchesReference(9, 1, 9, 5);
+    }
+
+    @Test
+    public void readsRowsStrideApart() {
+
+        assertMatchesReference(5, 3, 8, 6);
+        assertMatchesReference(6, 4, 11, 7);
+    }
+
+    @Test
+    public void flipsDstToTheFrameSize() {
+
+        I420Converter converter = new I420Converter();
+        ByteBuffer dst = ByteBuffer.allocateDirect(1024);
+        dst.position(100);
+        converter.convert(solid(WHITE, 5 * 3), 5, 5, 3, dst);
+
+        assertEquals(0, dst.position());
+        assertEquals(converter.frameSize(5, 3), dst.limit());
+    }
+
+    @Test
+    public void reusesConverterAcrossSizes() {
+
+        I420Converter converter = new I420Converter();
+        ByteBuffer dst = ByteBuffer.allocateDirect(converter.frameSize(32, 32));
+        for (int[] size : new int[][]{{32, 32}, {3, 7}, {20, 2}, {31, 31}}) {
+            int[] argb = random(size[0] * size[1], size[0] + size[1]);
+            converter.convert(argb, size[0], size[0], size[1], dst);
+            assertBytes(reference(argb, size[0], size[0], size[1]), dst);
+        }
+    }
+
+    private static void assertSolid(int color, int y, int u, int v) {
+
+        I420Converter converter = new I420Converter();
+        ByteBuffer dst = ByteBuffer.allocateDirect(converter.frameSize(3, 3));
+        converter.convert(solid(color, 9), 3, 3, 3, dst);
+
+        for (int i = 0; i < 9; i++) {
+            assertEquals("Y " + i, y, dst.get(i) & 0xFF);
+        }
+        for (int i = 9; i < 13; i++) {
+            assertEquals("U " + i, u, dst.get(i) & 0xFF);
+        }
+        for (int i = 13; i < 17; i++) {
+            assertEquals("V " + i, v, dst.get(i) & 0xFF);
+        }
+    }
+
+    private static void assertMatchesReference(int width, int height, int stride, long seed) {
+
+        int[] argb = random(stride * height, seed);
+        I420Converter converter = new I420Converter();
+        ByteBuffer dst = ByteBuffer.allocateDirect(converter.frameSize(width, height));
+        converter.convert(argb, stride, width, height, dst);
+        assertBytes(reference(argb, stride, width, height), dst);
+    }
+
+    private static void assertBytes(byte[] expected, ByteBuffer dst) {
+
+        assertEquals(expected.length, dst.remaining());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("byte " + i, expected[i] & 0xFF, dst.get(i) & 0xFF);
+        }
+    }
+
+    /**
+     * Pixel by pixel conversion; chroma averages the pixels of each block that exist.
+     */
+    private static byte[] reference(int[] argb, int stride, int width, int height) {
+
+        int chromaWidth = (width + 1) / 2;
+        int chromaHeight = (height + 1) / 2;
+        byte[] out = new byte[width * height + 2 * chromaWidth * chromaHeight];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int p = argb[y * stride + x];
+                int r = (p >> 16) & 0xFF, g = (p >> 8) & 0xFF, b = p & 0xFF;
+                out[y * width + x] = (byte) (((66 * r + 129 * g + 25 * b + 128) >> 8) + 16);
+            }
+        }
+        for (int cy = 0; cy < chromaHeight; cy++) {
+            for (int cx = 0; cx < chromaWidth; cx++) {
+                int r = 0, g = 0, b = 0, n = 0;
+                for (int y = 2 * cy; y < Math.min(2 * cy + 2, height); y++) {
+                    for (int x = 2 * cx; x < Math.min(2 * cx + 2, width); x++) {
+                        int p = argb[y * stride + x];
+                        r += (p >> 16) & 0xFF;
+                        g += (p >> 8) & 0xFF;
+                        b += p & 0xFF;
+                        n++;
+                    }
+                }
+                r = (r + n / 2) / n;
+                g = (g + n / 2) / n;
+                b = (b + n / 2) / n;
+                int index = width * height + cy * chromaWidth + cx;
+                out[index] = (byte) (((-38 * r - 74 * g + 112 * b + 128) >> 8) + 128);
+                out[index + chromaWidth * chromaHeight] = (byte) (((112 * r - 94 * g - 18 * b + 128) >> 8) + 128);
+            }
+        }
+        return out;
+    }
+
+    private static int[] solid(int color, int count) {
+
+        int[] argb = new int[count];
+        Arrays.fill(argb, color);
+        return argb;
+    }
+
+    private static int[] random(int count, long seed) {
+
+        Random random = new Random(seed);
+        int[] argb = new int[count];
+        for (int i = 0; i < count; i++) {
+            argb[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        return argb;
+    }
+}
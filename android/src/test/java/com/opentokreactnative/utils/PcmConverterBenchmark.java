@@ -0,0 +1,41 @@
+package com.opentokreactnative.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Times PcmConverter on 10 ms blocks of a sine, for the conversions the custom audio driver
+ * and the file audio device use, and reports how much faster than real time they run.
+ */
+public class PcmConverterBenchmark {
+
+    private static final int WARMUP_SECONDS = 20;
+    private static final int MEASURED_SECONDS = 60;
+    private static final int BLOCKS_PER_SECOND = 100;
+
+    public static void main(String[] args) {
+
+        run(48000, 1, 44100, 1);
+        run(44100, 1, 48000, 1);
+        run(48000, 2, 44100, 1);
+        run(48000, 1, 48000, 2);
+    }
+
+    private static void run(int inRate, int inChannels, int outRate, int outChannels) {
+
+        PcmConverter converter = new PcmConverter(inRate, inChannels, outRate, outChannels);
+        int blockFrames = inRate / BLOCKS_PER_SECOND;
+        ByteBuffer src = ByteBuffer.allocateDirect(blockFrames * inChannels * 2).order(ByteOrder.nativeOrder());
+        for (int i = 0; i < blockFrames * inChannels; i++) {
+            src.putShort(i * 2, (short) Math.round(16384 * Math.sin(2 * Math.PI * 1000 * i / inChannels / inRate)));
+        }
+        ByteBuffer dst = ByteBuffer.allocateDirect(converter.maxOutputFrames(blockFrames) * outChannels * 2)
+                .order(ByteOrder.nativeOrder());
+
+        double nanos = BenchmarkLoop.nanosPerIteration(() -> converter.convert(src, blockFrames, dst),
+                WARMUP_SECONDS * BLOCKS_PER_SECOND, MEASURED_SECONDS * BLOCKS_PER_SECOND);
+
+        System.out.printf("%d Hz x%d -> %d Hz x%d: %.1f us per 10 ms block, %.0fx real time%n",
+                inRate, inChannels, outRate, outChannels, nanos / 1000, 1e9 / BLOCKS_PER_SECOND / nanos);
+    }
+}
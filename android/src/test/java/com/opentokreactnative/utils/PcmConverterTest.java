@@ -0,0 +1,145 @@
+package com.opentokreactnative.utils;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PcmConverterTest {
+
+    private static final int BLOCKS = 100;
+
+    @Test
+    public void downsamplesOneSecondTo44100Frames() {
+
+        assertEquals(44100, countFrames(48000, 44100), 1);
+    }
+
+    @Test
+    public void upsamplesOneSecondTo48000Frames() {
+
+        assertEquals(48000, countFrames(44100, 48000), 1);
+    }
+
+    @Test
+    public void downsampledSineHasHighSnr() {
+
+        double snr = resampledSineSnr(48000, 44100, 1000);
+        assertTrue("SNR " + snr + " dB", snr > 80);
+    }
+
+    @Test
+    public void upsampledSineHasHighSnr() {
+
+        double snr = resampledSineSnr(44100, 48000, 1000);
+        assertTrue("SNR " + snr + " dB", snr > 80);
+    }
+
+    @Test
+    public void mixesStereoToMonoByAveraging() {
+
+        PcmConverter converter = new PcmConverter(48000, 2, 48000, 1);
+        ByteBuffer src = allocate(2 * 2);
+        src.putShort(0, (short) 1000).putShort(2, (short) 3000);
+        src.putShort(4, (short) -100).putShort(6, (short) 100);
+        ByteBuffer dst = allocate(converter.maxOutputFrames(2));
+
+        assertEquals(2, converter.convert(src, 2, dst));
+        assertEquals(2000, dst.getShort(0));
+        assertEquals(0, dst.getShort(2));
+    }
+
+    @Test
+    public void duplicatesMonoToStereo() {
+
+        PcmConverter converter = new PcmConverter(48000, 1, 48000, 2);
+        ByteBuffer src = allocate(2);
+        src.putShort(0, (short) 1234).putShort(2, (short) -1234);
+        ByteBuffer dst = allocate(converter.maxOutputFrames(2) * 2);
+
+        assertEquals(2, converter.convert(src, 2, dst));
+        assertEquals(1234, dst.getShort(0));
+        assertEquals(1234, dst.getShort(2));
+        assertEquals(-1234, dst.getShort(4));
+        assertEquals(-1234, dst.getShort(6));
+        assertEquals(8, dst.limit());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnsupportedChannelCounts() {
+
+        new PcmConverter(48000, 6, 48000, 2);
+    }
+
+    /**
+     * Converts one second of silence in 10 ms blocks and counts the output frames.
+     */
+    private static int countFrames(int inRate, int outRate) {
+
+        PcmConverter converter = new PcmConverter(inRate, 1, outRate, 1);
+        int blockFrames = inRate / BLOCKS;
+        ByteBuffer src = allocate(blockFrames);
+        ByteBuffer dst = allocate(converter.maxOutputFrames(blockFrames));
+        int total = 0;
+        for (int block = 0; block < BLOCKS; block++) {
+            total += converter.convert(src, blockFrames, dst);
+        }
+        return total;
+    }
+
+    /**
+     * Resamples one second of a half-scale sine in 10 ms blocks, fits a sine of the same
+     * frequency to the output (past the filter delay) and returns the ratio, in dB, of its
+     * power to the power of what is left.
+     */
+    private static double resampledSineSnr(int inRate, int outRate, double frequency) {
+
+        PcmConverter converter = new PcmConverter(inRate, 1, outRate, 1);
+        int blockFrames = inRate / BLOCKS;
+        ByteBuffer src = allocate(blockFrames);
+        ByteBuffer dst = allocate(converter.maxOutputFrames(blockFrames));
+        double[] output = new double[outRate + BLOCKS];
+        int outputFrames = 0;
+        for (int block = 0; block < BLOCKS; block++) {
+            for (int i = 0; i < blockFrames; i++) {
+                double t = (double) (block * blockFrames + i) / inRate;
+                src.putShort(i * 2, (short) Math.round(16384 * Math.sin(2 * Math.PI * frequency * t)));
+            }
+            int frames = converter.convert(src, blockFrames, dst);
+            for (int i = 0; i < frames; i++) {
+                output[outputFrames++] = dst.getShort(i * 2);
+            }
+        }
+
+        int start = outRate / 100;
+        double sinSum = 0, cosSum = 0, sinSq = 0, cosSq = 0, sinCos = 0;
+        for (int i = start; i < outputFrames; i++) {
+            double phase = 2 * Math.PI * frequency * i / outRate;
+            double s = Math.sin(phase), c = Math.cos(phase);
+            sinSum += output[i] * s;
+            cosSum += output[i] * c;
+            sinSq += s * s;
+            cosSq += c * c;
+            sinCos += s * c;
+        }
+        double det = sinSq * cosSq - sinCos * sinCos;
+        double a = (sinSum * cosSq - cosSum * sinCos) / det;
+        double b = (cosSum * sinSq - sinSum * sinCos) / det;
+        double signal = 0, noise = 0;
+        for (int i = start; i < outputFrames; i++) {
+            double phase = 2 * Math.PI * frequency * i / outRate;
+            double fit = a * Math.sin(phase) + b * Math.cos(phase);
+            signal += fit * fit;
+            noise += (output[i] - fit) * (output[i] - fit);
+        }
+        return 10 * Math.log10(signal / noise);
+    }
+
+    private static ByteBuffer allocate(int frames) {
+
+        return ByteBuffer.allocateDirect(frames * 2).order(ByteOrder.nativeOrder());
+    }
+}
@@ -0,0 +1,151 @@
+package com.opentokreactnative.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class WavFileReaderTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("wav-reader", ".wav");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void readsMonoFile() throws IOException {
+
+        short[] samples = WavFixtures.ramp(480);
+        WavFileReader reader = new WavFileReader(WavFixtures.write(file, 16000, 1, samples));
+
+        assertEquals(16000, reader.getSampleRate());
+        assertEquals(1, reader.getChannels());
+        assertSamples(samples, reader.getData());
+    }
+
+    @Test
+    public void readsStereoFile() throws IOException {
+
+        short[] samples = WavFixtures.ramp(2 * 441);
+        WavFileReader reader = new WavFileReader(WavFixtures.write(file, 44100, 2, samples));
+
+        assertEquals(44100, reader.getSampleRate());
+        assertEquals(2, reader.getChannels());
+        assertSamples(samples, reader.getData());
+    }
+
+    @Test
+    public void returnsSamplesInNativeOrder() throws IOException {
+
+        WavFileReader reader = new WavFileReader(WavFixtures.write(file, 48000, 1, WavFixtures.ramp(10)));
+
+        assertSame(ByteOrder.nativeOrder(), reader.getData().order());
+    }
+
+    @Test
+    public void skipsOtherChunksAndTheirPadding() throws IOException {
+
+        short[] samples = WavFixtures.ramp(100);
+        WavFixtures.write(file, WavFixtures.wav(WavFixtures.FORMAT_PCM, 48000, 1, 16, samples,
+                WavFixtures.oddChunk("LIST")));
+
+        assertSamples(samples, new WavFileReader(file).getData());
+    }
+
+    @Test
+    public void usesTheRestOfTheFileWhenTheDataSizeIsUnset() throws IOException {
+
+        short[] samples = WavFixtures.ramp(100);
+        byte[] wav = WavFixtures.wav(WavFixtures.FORMAT_PCM, 48000, 1, 16, samples, null);
+        ByteBuffer.wrap(wav).order(ByteOrder.LITTLE_ENDIAN).putInt(40, -1);
+        WavFixtures.write(file, wav);
+
+        assertSamples(samples, new WavFileReader(file).getData());
+    }
+
+    @Test
+    public void dropsAPartialLastFrame() throws IOException {
+
+        WavFileReader reader = new WavFileReader(WavFixtures.write(file, 48000, 2, WavFixtures.ramp(11)));
+
+        assertEquals(20, reader.getData().limit());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsFilesThatAreNotWav() throws IOException {
+
+        WavFixtures.write(file, "not a wav file at all".getBytes(StandardCharsets.US_ASCII));
+        new WavFileReader(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejects8BitSamples() throws IOException {
+
+        WavFixtures.write(file, WavFixtures.wav(WavFixtures.FORMAT_PCM, 48000, 1, 8, WavFixtures.ramp(10), null));
+        new WavFileReader(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsFloatSamples() throws IOException {
+
+        WavFixtures.write(file, WavFixtures.wav(3, 48000, 1, 16, WavFixtures.ramp(10), null));
+        new WavFileReader(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsMoreThanTwoChannels() throws IOException {
+
+        WavFixtures.write(file, 48000, 6, WavFixtures.ramp(60));
+        new WavFileReader(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsFilesWithoutData() throws IOException {
+
+        byte[] wav = WavFixtures.wav(WavFixtures.FORMAT_PCM, 48000, 1, 16, new short[0], null);
+        byte[] header = new byte[36];
+        System.arraycopy(wav, 0, header, 0, header.length);
+        WavFixtures.write(file, header);
+        new WavFileReader(file);
+    }
+
+    @Test
+    public void rejectsFilesCutOffInTheFormatChunk() throws IOException {
+
+        byte[] wav = WavFixtures.wav(WavFixtures.FORMAT_PCM, 48000, 1, 16, WavFixtures.ramp(10), null);
+        for (int length : new int[]{20, 24, 30}) {
+            WavFixtures.write(file, Arrays.copyOf(wav, length));
+            try {
+                new WavFileReader(file);
+                fail(length + " bytes were read");
+            } catch (IOException e) {
+                // Expected: the format chunk ends past the end of the file.
+            }
+        }
+    }
+
+    private static void assertSamples(short[] expected, ByteBuffer data) {
+
+        assertEquals(expected.length * 2, data.limit());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("sample " + i, expected[i], data.getShort(i * 2));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.opentokreactnative.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Builds small WAV files for tests.
+ */
+public final class WavFixtures {
+
+    public static final int FORMAT_PCM = 1;
+
+    private WavFixtures() {
+    }
+
+    public static File write(File file, int sampleRate, int channels, short[] samples) throws IOException {
+
+        return write(file, wav(FORMAT_PCM, sampleRate, channels, 16, samples, null));
+    }
+
+    public static File write(File file, byte[] contents) throws IOException {
+
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(contents);
+        }
+        return file;
+    }
+
+    /**
+     * @param extraChunk a chunk, with its id and size, written between "fmt " and "data", or null.
+     */
+    public static byte[] wav(int format, int sampleRate, int channels, int bitsPerSample, short[] samples,
+                             byte[] extraChunk) {
+
+        int dataSize = samples.length * 2;
+        int extraSize = extraChunk == null ? 0 : extraChunk.length;
+        ByteBuffer wav = ByteBuffer.allocate(44 + extraSize + dataSize).order(ByteOrder.LITTLE_ENDIAN);
+        wav.put(new byte[]{'R', 'I', 'F', 'F'}).putInt(36 + extraSize + dataSize).put(new byte[]{'W', 'A', 'V', 'E'});
+        wav.put(new byte[]{'f', 'm', 't', ' '}).putInt(16)
+                .putShort((short) format)
+                .putShort((short) channels)
+                .putInt(sampleRate)
+                .putInt(sampleRate * channels * bitsPerSample / 8)
+                .putShort((short) (channels * bitsPerSample / 8))
+                .putShort((short) bitsPerSample);
+        if (extraChunk != null) {
+            wav.put(extraChunk);
+        }
+        wav.put(new byte[]{'d', 'a', 't', 'a'}).putInt(dataSize);
+        for (short sample : samples) {
+            wav.putShort(sample);
+        }
+        return wav.array();
+    }
+
+    /**
+     * @return a chunk with the given id and an odd-sized body, followed by its pad byte.
+     */
+    public static byte[] oddChunk(String id) {
+
+        ByteBuffer chunk = ByteBuffer.allocate(8 + 3 + 1).order(ByteOrder.LITTLE_ENDIAN);
+        chunk.put(id.getBytes()).putInt(3).put(new byte[]{1, 2, 3, 0});
+        return chunk.array();
+    }
+
+    public static short[] ramp(int length) {
+
+        short[] samples = new short[length];
+        for (int i = 0; i < length; i++) {
+            samples[i] = (short) (i * 7 - 1000);
+        }
+        return samples;
+    }
+}
@@ -5,7 +5,8 @@ import PropTypes from 'prop-types';
 import { pick, isNull } from 'underscore';
 import { setNativeEvents, removeNativeEvents,  OT } from './OT';
 import { sanitizeSessionEvents, sanitizeSessionOptions, sanitizeSignalData,
-   sanitizeCredentials, getConnectionStatus } from './helpers/OTSessionHelper';
+   sanitizeCredentials, getConnectionStatus, subscribeToBatchedEvents,
+   subscribeToAudioLevels } from './helpers/OTSessionHelper';
 import { handleError } from './OTError';
 import { logOT, getOtrnErrorEventHandler } from './helpers/OTHelper';
 import OTContext from './contexts/OTContext';
@@ -60,6 +61,12 @@ export default class OTSession extends Component {
   createSession(credentials, sessionOptions) {
     const { signal } = this.props;
     const { apiKey, sessionId, token } = credentials;
+    if (sessionOptions.eventBatchInterval > 0) {
+      subscribeToBatchedEvents();
+    }
+    if (sessionOptions.audioLevelRate > 0) {
+      subscribeToAudioLevels();
+    }
     OT.initSession(apiKey, sessionId, sessionOptions);
     OT.connect(sessionId, token, (error) => {
       if (error) {
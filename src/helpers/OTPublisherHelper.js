@@ -46,6 +46,47 @@ const sanitizeVideoContentHint = (sanitizeVideoContentHint = '') => {
   }
 };
 
+const sanitizeAudioProcessing = (audioProcessing) => {
+  const options = typeof audioProcessing === 'object' && audioProcessing !== null ? audioProcessing : {};
+  const gain = Number(options.gain);
+  return {
+    highPassFilter: options.highPassFilter === true,
+    gain: Number.isFinite(gain) ? Math.max(-20, Math.min(20, gain)) : 0,
+    autoGain: options.autoGain === true,
+    voiceActivityDetection: options.voiceActivityDetection === true,
+    silenceGate: options.silenceGate === true,
+  };
+};
+
+const sanitizeRegion = (region) => {
+  if (typeof region !== 'object' || region === null) {
+    return null;
+  }
+  const [x, y, width, height] = [region.x, region.y, region.width, region.height].map(Number);
+  if (![x, y, width, height].every(Number.isFinite) || width <= 0 || height <= 0) {
+    return null;
+  }
+  return {
+    x, y, width, height,
+  };
+};
+
+const sanitizeScreenCapture = (screenCapture) => {
+  const options = typeof screenCapture === 'object' && screenCapture !== null ? screenCapture : {};
+  const maxDimension = Number(options.maxDimension);
+  const maxFrameRate = Number(options.maxFrameRate);
+  const minFrameRate = Number(options.minFrameRate);
+  const sanitizedMaxFrameRate = Number.isFinite(maxFrameRate) && maxFrameRate > 0 ? Math.min(maxFrameRate, 30) : 15;
+  return {
+    maxDimension: Number.isFinite(maxDimension) && maxDimension >= 0 ? Math.round(maxDimension) : 1280,
+    maxFrameRate: sanitizedMaxFrameRate,
+    minFrameRate: Number.isFinite(minFrameRate) && minFrameRate > 0
+      ? Math.min(minFrameRate, sanitizedMaxFrameRate) : Math.min(1, sanitizedMaxFrameRate),
+    viewTag: Number.isInteger(options.viewTag) && options.viewTag > 0 ? options.viewTag : 0,
+    region: sanitizeRegion(options.region),
+  };
+};
+
 const sanitizeProperties = (properties) => {
   if (typeof properties !== 'object') {
     return {
@@ -62,6 +103,8 @@ const sanitizeProperties = (properties) => {
       resolution: sanitizeResolution(),
       videoContentHint: '',
       videoSource: 'camera',
+      audioProcessing: sanitizeAudioProcessing(),
+      screenCapture: sanitizeScreenCapture(),
     };
   }
   return {
@@ -78,6 +121,8 @@ const sanitizeProperties = (properties) => {
     resolution: sanitizeResolution(properties.resolution),
     videoContentHint: sanitizeVideoContentHint(properties.videoContentHint),
     videoSource: sanitizeVideoSource(properties.videoSource),
+    audioProcessing: sanitizeAudioProcessing(properties.audioProcessing),
+    screenCapture: sanitizeScreenCapture(properties.screenCapture),
   };
 };
 
@@ -97,6 +142,8 @@ const sanitizePublisherEvents = (publisherId, events) => {
       streamDestroyed: 'onStreamDestroyed',
       error: 'onError',
       audioLevel: 'onAudioLevelUpdated',
+      voiceActivity: 'onVoiceActivity',
+      screenCaptureStats: 'onScreenCaptureStats',
     },
   };
   return reassignEvents('publisher', customEvents, events, publisherId);
@@ -1,4 +1,5 @@
 import { Platform } from 'react-native';
+import { nativeEvents } from '../OT';
 import { reassignEvents } from './OTHelper';
 import { handleSignalError, handleError } from '../OTError';
 import {
@@ -8,7 +9,8 @@ import {
   isString,
   isBoolean,
   isObject,
-  isArray
+  isArray,
+  isNumber
 } from 'underscore';
 
 const validateString = (value) => (isString(value) ? value : '');
@@ -19,6 +21,14 @@ const validateObject = (value) => (isObject(value) ? value : {});
 
 const validateArray = (value) => (isArray(value) ? value : []);
 
+const validateNumber = (value) => (isNumber(value) && value > 0 ? Math.round(value) : 0);
+
+const batchedEventName = 'otrn:onBatchedEvents';
+let batchedEventsSubscription = null;
+
+const audioLevelsEventName = 'otrn:onAudioLevels';
+let audioLevelsSubscription = null;
+
 const sanitizeSessionEvents = (sessionId, events) => {
   if (typeof events !== 'object') {
     return {};
@@ -52,7 +62,10 @@ const sanitizeSessionEvents = (sessionId, events) => {
       sessionReconnecting: 'onReconnecting',
       archiveStarted: 'onArchiveStarted',
       archiveStopped: 'onArchiveStopped',
-      streamPropertyChanged: 'onStreamPropertyChanged'
+      streamPropertyChanged: 'onStreamPropertyChanged',
+      activeSpeakerChanged: 'onActiveSpeakerChanged',
+      audioTelemetry: 'onAudioTelemetry',
+      audioDeviceError: 'onAudioDeviceError'
     }
   };
   return reassignEvents('session', customEvents, events, sessionId);
@@ -90,6 +103,30 @@ const sanitizeCustomTurnOptions = (options) => {
   return sessionOptions;
 };
 
+const activeSpeakerNumberOptions = ['holdTime', 'smoothingWindow', 'topSpeakers'];
+
+const sanitizeActiveSpeakerDetection = (value) => {
+  if (value === true) {
+    return { enabled: true };
+  }
+  if (!isObject(value) || isArray(value)) {
+    return { enabled: false };
+  }
+  const detectionOptions = { enabled: value.enabled !== false };
+  // Values that are not positive numbers are dropped, so the native defaults apply.
+  each(activeSpeakerNumberOptions, (key) => {
+    const number = validateNumber(value[key]);
+    if (number > 0) {
+      detectionOptions[key] = number;
+    }
+  });
+  // The threshold is an audio level between 0 and 1, so it is not rounded.
+  if (isNumber(value.threshold) && value.threshold > 0 && value.threshold <= 1) {
+    detectionOptions.threshold = value.threshold;
+  }
+  return detectionOptions;
+};
+
 const sanitizeSessionOptions = (options) => {
   const platform = Platform.OS;
   let sessionOptions;
@@ -102,6 +139,13 @@ const sanitizeSessionOptions = (options) => {
       proxyUrl: '',
       useTextureViews: false,
       enableStereoOutput: false,
+      lowLatencyAudio: false,
+      eventBatchInterval: 0,
+      audioLevelRate: 0,
+      activeSpeakerDetection: { enabled: false },
+      statsSummaryInterval: 0,
+      audioTelemetryInterval: 0,
+      fileAudioDevice: {},
       androidOnTop: '', // 'publisher' || 'subscriber'
       androidZOrder: '', // 'mediaOverlay' || 'onTop'
     };
@@ -136,6 +180,13 @@ const sanitizeSessionOptions = (options) => {
       iceConfig: 'object',
       proxyUrl: 'string',
       enableStereoOutput: 'boolean',
+      lowLatencyAudio: 'boolean',
+      eventBatchInterval: 'number',
+      audioLevelRate: 'number',
+      activeSpeakerDetection: 'activeSpeakerDetection',
+      statsSummaryInterval: 'number',
+      audioTelemetryInterval: 'number',
+      fileAudioDevice: 'object',
     },
   };
 
@@ -148,6 +199,10 @@ const sanitizeSessionOptions = (options) => {
         sessionOptions[key] = validateString(value);
       } else if (optionType === 'object') {
         sessionOptions[key] = validateObject(value);
+      } else if (optionType === 'number') {
+        sessionOptions[key] = validateNumber(value);
+      } else if (optionType === 'activeSpeakerDetection') {
+        sessionOptions[key] = sanitizeActiveSpeakerDetection(value);
       }
     } else {
       handleError(`${key} is not a valid option`);
@@ -221,11 +276,43 @@ const getConnectionStatus = (connectionStatus) => {
 const isConnected = (connectionStatus) =>
   getConnectionStatus(connectionStatus) === 'connected';
 
+const dispatchBatchedEvents = (events) => {
+  each(validateArray(events), ({ eventName, data }) => {
+    nativeEvents.emit(eventName, data);
+  });
+};
+
+const subscribeToBatchedEvents = () => {
+  if (isNull(batchedEventsSubscription)) {
+    batchedEventsSubscription = nativeEvents.addListener(batchedEventName, dispatchBatchedEvents);
+  }
+};
+
+const dispatchAudioLevels = ({ publishers, subscribers }) => {
+  each(validateObject(publishers), (audioLevel, publisherId) => {
+    nativeEvents.emit(`${publisherId}:publisher:onAudioLevelUpdated`, String(audioLevel));
+  });
+  each(validateObject(subscribers), (audioLevel, streamId) => {
+    nativeEvents.emit('subscriber:onAudioLevelUpdated', {
+      stream: { streamId },
+      audioLevel: String(audioLevel),
+    });
+  });
+};
+
+const subscribeToAudioLevels = () => {
+  if (isNull(audioLevelsSubscription)) {
+    audioLevelsSubscription = nativeEvents.addListener(audioLevelsEventName, dispatchAudioLevels);
+  }
+};
+
 export {
   sanitizeSessionEvents,
   sanitizeSessionOptions,
   sanitizeSignalData,
   sanitizeCredentials,
   getConnectionStatus,
-  isConnected
+  isConnected,
+  subscribeToBatchedEvents,
+  subscribeToAudioLevels
 };
@@ -40,6 +40,7 @@ const sanitizeSubscriberEvents = (events) => {
       videoDisableWarning: 'onVideoDisableWarning',
       videoDisableWarningLifted: 'onVideoDisableWarningLifted',
       videoDataReceived: 'onVideoDataReceived',
+      statsSummary: 'onStatsSummary',
     },
   };
   return reassignEvents('subscriber', customEvents, events);